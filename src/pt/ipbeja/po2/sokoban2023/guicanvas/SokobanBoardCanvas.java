@@ -0,0 +1,251 @@
+package pt.ipbeja.po2.sokoban2023.guicanvas;
+
+import javafx.application.Platform;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.Alert;
+import javafx.scene.image.Image;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyEvent;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+import pt.ipbeja.po2.sokoban2023.guiimages.KeeperKeys;
+import pt.ipbeja.po2.sokoban2023.guiimages.ThemeCache;
+import pt.ipbeja.po2.sokoban2023.images.ImageType;
+import pt.ipbeja.po2.sokoban2023.model.*;
+
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Game interface for large boards: one Canvas as big as the window, not as the board
+ * Only the cells inside the viewport are painted, and after a move only the cells that changed;
+ * the number of nodes and the canvas memory do not depend on the board size
+ * Mouse wheel scrolls, Ctrl + mouse wheel or +/- zoom out and back up to the texture size,
+ * dragging pans; the view follows the keeper
+ *
+ * @author Diogo Patusca 23925, João Costa 22890
+ * @version 2023/06/11
+ */
+public class SokobanBoardCanvas extends Pane implements SokobanView {
+    private static final double MIN_CELL_SIZE = 8;
+    /**
+     * The textures are decoded at this size, a larger cell would only stretch and blur them
+     */
+    private static final double MAX_CELL_SIZE = ThemeCache.SQUARE_SIZE;
+    private static final double ZOOM_STEP = 1.1;
+    private static final double MAX_VIEWPORT_WIDTH = 1200;
+    private static final double MAX_VIEWPORT_HEIGHT = 800;
+    private static final Color BACKGROUND = Color.web("#BFBFBF");
+    private final SokobanGameModel sokoban;
+    private final Map<ImageType, Image> images;
+    private final Canvas canvas;
+    private final Set<Position> dirty;
+    private double cellSize;
+    private double scrollX;
+    private double scrollY;
+    private double dragX;
+    private double dragY;
+    private boolean fullRepaint;
+    private boolean repaintScheduled;
+
+    /**
+     * Create a sokoban board painted on a canvas and handle keystrokes, scrolling and zooming
+     *
+     * @param sokoban  the game model
+     * @param images   image of each image type, drawn scaled down to the cell size
+     * @param cellSize initial size of a cell in pixels
+     */
+    public SokobanBoardCanvas(SokobanGameModel sokoban, Map<ImageType, Image> images, double cellSize) {
+        this.sokoban = sokoban;
+        this.images = images;
+        this.cellSize = Math.max(MIN_CELL_SIZE, Math.min(MAX_CELL_SIZE, cellSize));
+        this.dirty = new LinkedHashSet<>();
+        this.canvas = new Canvas();
+        this.getChildren().add(this.canvas);
+        this.setPrefSize(Math.min(MAX_VIEWPORT_WIDTH, sokoban.getNCols() * this.cellSize),
+                Math.min(MAX_VIEWPORT_HEIGHT, sokoban.getNLines() * this.cellSize));
+
+        // the canvas is the size of the viewport, a new size paints every visible cell again
+        this.canvas.widthProperty().bind(this.widthProperty());
+        this.canvas.heightProperty().bind(this.heightProperty());
+        this.canvas.widthProperty().addListener((observable, oldValue, newValue) -> this.scrollBy(0, 0));
+        this.canvas.heightProperty().addListener((observable, oldValue, newValue) -> this.scrollBy(0, 0));
+
+        KeeperKeys.setOnKeyPressedMovement(this, sokoban);
+        this.setOnZoomKeys();
+        this.setOnScrollAndDrag();
+        this.setOnMouseClicked(event -> this.requestFocus());
+    }
+
+    /**
+     * + and - zoom, next to the keys that move the keeper
+     */
+    private void setOnZoomKeys() {
+        this.addEventHandler(KeyEvent.KEY_PRESSED, event -> {
+            if (event.getCode() == KeyCode.PLUS || event.getCode() == KeyCode.ADD || event.getCode() == KeyCode.EQUALS) {
+                this.zoom(ZOOM_STEP, this.getWidth() / 2, this.getHeight() / 2);
+            } else if (event.getCode() == KeyCode.MINUS || event.getCode() == KeyCode.SUBTRACT) {
+                this.zoom(1 / ZOOM_STEP, this.getWidth() / 2, this.getHeight() / 2);
+            }
+        });
+    }
+
+    /**
+     * Mouse wheel scrolls (zooms with Ctrl) and dragging pans the board
+     */
+    private void setOnScrollAndDrag() {
+        this.setOnScroll((ScrollEvent event) -> {
+            if (event.isControlDown()) {
+                this.zoom(event.getDeltaY() > 0 ? ZOOM_STEP : 1 / ZOOM_STEP, event.getX(), event.getY());
+            } else {
+                this.scrollBy(-event.getDeltaX(), -event.getDeltaY());
+            }
+            event.consume();
+        });
+        this.setOnMousePressed(event -> {
+            this.dragX = event.getX();
+            this.dragY = event.getY();
+        });
+        this.setOnMouseDragged(event -> {
+            this.scrollBy(this.dragX - event.getX(), this.dragY - event.getY());
+            this.dragX = event.getX();
+            this.dragY = event.getY();
+        });
+    }
+
+    /**
+     * Changes the cell size keeping the board point under (x, y) in place
+     *
+     * @param factor zoom factor
+     * @param x      horizontal position in the viewport
+     * @param y      vertical position in the viewport
+     */
+    private void zoom(double factor, double x, double y) {
+        final double newSize = Math.max(MIN_CELL_SIZE, Math.min(MAX_CELL_SIZE, this.cellSize * factor));
+        final double scale = newSize / this.cellSize;
+        this.cellSize = newSize;
+        this.scrollX = (this.scrollX + x) * scale - x;
+        this.scrollY = (this.scrollY + y) * scale - y;
+        this.scrollBy(0, 0);
+    }
+
+    /**
+     * Moves the viewport, never past the board, and repaints it
+     *
+     * @param dx horizontal pixels
+     * @param dy vertical pixels
+     */
+    private void scrollBy(double dx, double dy) {
+        final double maxX = Math.max(0, this.sokoban.getNCols() * this.cellSize - this.canvas.getWidth());
+        final double maxY = Math.max(0, this.sokoban.getNLines() * this.cellSize - this.canvas.getHeight());
+        this.scrollX = Math.max(0, Math.min(maxX, this.scrollX + dx));
+        this.scrollY = Math.max(0, Math.min(maxY, this.scrollY + dy));
+        this.fullRepaint = true;
+        this.scheduleRepaint();
+    }
+
+    /**
+     * Scrolls the least needed to show the keeper with one cell of margin
+     *
+     * @return true if the viewport moved
+     */
+    private boolean followKeeper() {
+        Position keeper = this.sokoban.getKeeperPosition();
+        final double left = (keeper.col() - 1) * this.cellSize;
+        final double right = (keeper.col() + 2) * this.cellSize;
+        final double top = (keeper.line() - 1) * this.cellSize;
+        final double bottom = (keeper.line() + 2) * this.cellSize;
+        double dx = 0;
+        double dy = 0;
+        if (left < this.scrollX) dx = left - this.scrollX;
+        else if (right > this.scrollX + this.canvas.getWidth()) dx = right - this.scrollX - this.canvas.getWidth();
+        if (top < this.scrollY) dy = top - this.scrollY;
+        else if (bottom > this.scrollY + this.canvas.getHeight()) dy = bottom - this.scrollY - this.canvas.getHeight();
+        if (dx == 0 && dy == 0) return false;
+        this.scrollBy(dx, dy);
+        return true;
+    }
+
+    /**
+     * Paints once per pulse, however many updates came before it
+     */
+    private void scheduleRepaint() {
+        if (this.repaintScheduled) return;
+        this.repaintScheduled = true;
+        Platform.runLater(this::repaint);
+    }
+
+    /**
+     * Paints the whole viewport after scrolling or zooming, otherwise only the dirty cells inside it
+     */
+    private void repaint() {
+        this.repaintScheduled = false;
+        GraphicsContext graphics = this.canvas.getGraphicsContext2D();
+        if (this.fullRepaint) {
+            graphics.setFill(BACKGROUND);
+            graphics.fillRect(0, 0, this.canvas.getWidth(), this.canvas.getHeight());
+            final int firstLine = Math.max(0, (int) (this.scrollY / this.cellSize));
+            final int firstCol = Math.max(0, (int) (this.scrollX / this.cellSize));
+            final int lastLine = Math.min(this.sokoban.getNLines() - 1,
+                    (int) ((this.scrollY + this.canvas.getHeight()) / this.cellSize));
+            final int lastCol = Math.min(this.sokoban.getNCols() - 1,
+                    (int) ((this.scrollX + this.canvas.getWidth()) / this.cellSize));
+            for (int line = firstLine; line <= lastLine; line++) {
+                for (int col = firstCol; col <= lastCol; col++) {
+                    this.paintCell(graphics, new Position(line, col));
+                }
+            }
+        } else {
+            for (Position p : this.dirty) {
+                this.paintCell(graphics, p);
+            }
+        }
+        this.fullRepaint = false;
+        this.dirty.clear();
+    }
+
+    /**
+     * Paints a cell, cells outside the viewport are clipped by the canvas
+     *
+     * @param graphics graphics of the canvas
+     * @param p        board position
+     */
+    private void paintCell(GraphicsContext graphics, Position p) {
+        // whole pixels, so that neighbour cells never leave a gap between them
+        final double x = Math.floor(p.col() * this.cellSize - this.scrollX);
+        final double y = Math.floor(p.line() * this.cellSize - this.scrollY);
+        final double width = Math.floor((p.col() + 1) * this.cellSize - this.scrollX) - x;
+        final double height = Math.floor((p.line() + 1) * this.cellSize - this.scrollY) - y;
+        if (x + width <= 0 || y + height <= 0 || x >= this.canvas.getWidth() || y >= this.canvas.getHeight()) return;
+        graphics.drawImage(this.images.get(this.sokoban.imageForPosition(p)), x, y, width, height);
+    }
+
+    /**
+     * Marks the changed positions and paints them on the next pulse
+     *
+     * @param messageToUI the sokoban model
+     */
+    @Override
+    public void update(MessageToUI messageToUI) {
+        this.dirty.addAll(messageToUI.positions());
+        if (!this.followKeeper()) this.scheduleRepaint();
+    }
+
+    /**
+     * Shows the end of game alert and exits
+     */
+    @Override
+    public void levelCompleted() {
+        Alert alert = new Alert(Alert.AlertType.INFORMATION);
+        alert.setTitle("");
+        alert.setHeaderText("");
+        alert.setContentText("Level completed!");
+        Platform.runLater(() -> {
+            alert.showAndWait();
+            System.exit(0);
+        });
+    }
+}
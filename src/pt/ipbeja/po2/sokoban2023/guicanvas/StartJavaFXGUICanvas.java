@@ -0,0 +1,52 @@
+package pt.ipbeja.po2.sokoban2023.guicanvas;
+
+import javafx.application.Application;
+import javafx.scene.Scene;
+import javafx.stage.Stage;
+import pt.ipbeja.po2.sokoban2023.guiimages.ThemeCache;
+import pt.ipbeja.po2.sokoban2023.model.Level;
+import pt.ipbeja.po2.sokoban2023.model.SokobanGameModel;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Start a game painted on a canvas, with the hardcoded board or the level file given as argument
+ * Usage: StartJavaFXGUICanvas [level file]
+ *
+ * @author Diogo Patusca 23925, João Costa 22890
+ * @version 2023/06/11
+ */
+public class StartJavaFXGUICanvas extends Application {
+    private static final double CELL_SIZE = ThemeCache.SQUARE_SIZE;
+    private static final String ENVIRONMENT = "Default/";
+
+    @Override
+    public void start(Stage primaryStage) {
+        List<String> args = this.getParameters().getRaw();
+        Level level;
+        try {
+            level = args.isEmpty() ? new Level() : Level.load(Path.of(args.get(0)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        SokobanGameModel sokoban = new SokobanGameModel(level);
+        SokobanBoardCanvas sokobanBoard = new SokobanBoardCanvas(sokoban, ThemeCache.get(ENVIRONMENT), CELL_SIZE);
+        primaryStage.setTitle("Sokoban");
+        primaryStage.setScene(new Scene(sokobanBoard));
+
+        sokoban.registerView(sokobanBoard);
+        sokobanBoard.requestFocus();
+        primaryStage.show();
+    }
+
+    /**
+     * @param args optional level file
+     */
+    public static void main(String[] args) {
+        Application.launch(args);
+    }
+}
@@ -0,0 +1,44 @@
+package pt.ipbeja.po2.sokoban2023.guiimages;
+
+import javafx.scene.Node;
+import javafx.scene.input.KeyCode;
+import pt.ipbeja.po2.sokoban2023.model.Direction;
+import pt.ipbeja.po2.sokoban2023.model.SokobanGameModel;
+
+import java.awt.Toolkit;
+import java.util.Map;
+
+/**
+ * Arrow keys that move the keeper, shared by every game interface
+ *
+ * @author Diogo Patusca 23925, João Costa 22890
+ * @version 2023/06/11
+ */
+public final class KeeperKeys {
+    private static final Map<KeyCode, Direction> KEY_TO_DIR = Map.of(KeyCode.UP, Direction.UP, KeyCode.DOWN, Direction.DOWN, KeyCode.LEFT, Direction.LEFT, KeyCode.RIGHT, Direction.RIGHT);
+
+    private KeeperKeys() {
+    }
+
+    /**
+     * reads the keys pressed by the player and moves the keeper
+     *
+     * @param node    the node of the Sokoban view that gets the keys
+     * @param sokoban the game model
+     */
+    public static void setOnKeyPressedMovement(Node node, SokobanGameModel sokoban) {
+        node.setOnKeyPressed(event -> {
+            Direction direction = KEY_TO_DIR.get(event.getCode());
+            if (direction != null && !sokoban.moveKeeper(direction)) {
+                couldNotMove();
+            }
+        });
+    }
+
+    /**
+     * Signal that keeper could not move
+     */
+    private static void couldNotMove() {
+        Toolkit.getDefaultToolkit().beep(); // did not move
+    }
+}
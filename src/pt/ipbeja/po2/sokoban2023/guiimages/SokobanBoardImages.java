@@ -1,7 +1,6 @@
 package pt.ipbeja.po2.sokoban2023.guiimages;
 
 import javafx.application.Platform;
-import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
@@ -14,6 +13,7 @@ import javafx.stage.Stage;
 import pt.ipbeja.po2.sokoban2023.images.ImageType;
 import pt.ipbeja.po2.sokoban2023.model.*;
 
+import java.io.UncheckedIOException;
 import java.util.Map;
 import java.util.Optional;
 
@@ -26,18 +26,19 @@ import java.util.Optional;
  * Based on <a href="https://en.wikipedia.org/wiki/Sokoban">...</a>
  */
 public class SokobanBoardImages extends BorderPane implements SokobanView {
-    private static final int SQUARE_SIZE = 60;
+    private static final int SQUARE_SIZE = ThemeCache.SQUARE_SIZE;
     private static final int MOVES_LIMIT = 250;
-    final Map<ImageType, Image> imageTypeToImage;
+    private Map<ImageType, Image> imageTypeToImage;
     private final SokobanGameModel sokoban;
     private final Stage primaryStage;
     private final GridPane gridPane;
+    private final ImageView[][] imageViews;
     private final String LETTERS = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
     private final TextArea textArea;
     private final String playerName;
     private final HBox hBox;
     private final Level level;
-    private final String environment;
+    private String environment;
     private SokobanMenuBar menu;
 
 
@@ -49,21 +50,10 @@ public class SokobanBoardImages extends BorderPane implements SokobanView {
     public SokobanBoardImages(SokobanGameModel sokoban,
                               Stage primaryStage,
                               Level level,
-                              String environment,
-                              String keeperImageFilename,
-                              String boxImageFilename,
-                              String boxEndImageFilename,
-                              String wallImageFilename,
-                              String freeImageFilename,
-                              String endImageFilename) {
+                              String environment) {
         this.setOnMouseClicked(event -> this.requestFocus());
         this.environment = environment;
-        this.imageTypeToImage = Map.of(ImageType.KEEPER, new Image("images/" + this.environment + keeperImageFilename),
-                ImageType.BOX, new Image("images/" + this.environment + boxImageFilename),
-                ImageType.BOXEND, new Image("images/" + this.environment + boxEndImageFilename),
-                ImageType.WALL, new Image("images/" + this.environment + wallImageFilename),
-                ImageType.END, new Image("images/" + this.environment + endImageFilename),
-                ImageType.FREE, new Image("images/" + this.environment + freeImageFilename));
+        this.imageTypeToImage = ThemeCache.get(environment);
         this.primaryStage = primaryStage;
         this.level = level;
         this.sokoban = sokoban;
@@ -77,10 +67,22 @@ public class SokobanBoardImages extends BorderPane implements SokobanView {
         this.textArea.setFont(Font.font("Calibri", FontWeight.BOLD, 15));
 
         this.gridPane = new GridPane();
+        this.imageViews = new ImageView[sokoban.getNLines()][sokoban.getNCols()];
         this.hBox = new HBox();
         this.buildGUI();
 
-        this.sokoban.setOnKeyPressedMovement(this);
+        KeeperKeys.setOnKeyPressedMovement(this, sokoban);
+    }
+
+    /**
+     * function that gets the image views of the labels of this.gridPane, from the index built in buildGUI
+     *
+     * @param line line of label in board
+     * @param col  column of label in board
+     * @return the image view at line, col
+     */
+    private ImageView getImageView(int line, int col) {
+        return this.imageViews[line][col];
     }
 
     /**
@@ -101,7 +103,8 @@ public class SokobanBoardImages extends BorderPane implements SokobanView {
                     label.setMinWidth(SQUARE_SIZE);
                     label.setMinHeight(SQUARE_SIZE);
                     ImageType imgType = this.sokoban.imageForPosition(new Position(line, col));
-                    label.setGraphic(this.createImageView(this.imageTypeToImage.get(imgType)));
+                    this.imageViews[line][col] = new ImageView(this.imageTypeToImage.get(imgType));
+                    label.setGraphic(this.imageViews[line][col]);
                 }
                 this.gridPane.add(label, col, line); // add label to GridPane
             }
@@ -112,20 +115,6 @@ public class SokobanBoardImages extends BorderPane implements SokobanView {
         this.requestFocus();
     }
 
-    /**
-     * creates an image from an image
-     *
-     * @param image image needed to create the image view
-     * @return imageView
-     */
-    private ImageView createImageView(Image image) {
-        ImageView imageView = new ImageView(image);
-        imageView.setFitHeight(SQUARE_SIZE);
-        imageView.setFitWidth(SQUARE_SIZE);
-        return imageView;
-    }
-
-
     /**
      * Formats the text in a Label for the coordinate labels and add the coordinate
      *
@@ -149,7 +138,7 @@ public class SokobanBoardImages extends BorderPane implements SokobanView {
      * @param messageToUI the sokoban model
      */
     private void writeMovementLog(MessageToUI messageToUI) {
-        if (!messageToUI.getMessage().contains("box")) {
+        if (messageToUI.getMessage().startsWith("move from")) {
             Position prevPos = messageToUI.positions().get(1);
             Position currPos = messageToUI.positions().get(0);
             String textLog = String.format("(%d, %s)->(%d, %s)\n",
@@ -164,7 +153,7 @@ public class SokobanBoardImages extends BorderPane implements SokobanView {
     /**
      * Updates the Labels accordingly to the movements the player made
      * Updates the textArea accordingly to the movements the player made
-     * See if the game as ended and proceeds accordingly showing an alert and the high scores on the level
+     * See if the player ran out of moves and proceeds accordingly showing an alert
      *
      * @param messageToUI the sokoban model
      */
@@ -172,7 +161,7 @@ public class SokobanBoardImages extends BorderPane implements SokobanView {
     public void update(MessageToUI messageToUI) {
         for (Position p : messageToUI.positions()) {
             ImageType imageType = this.sokoban.imageForPosition(p);
-            this.sokoban.getLabel(p.line(), p.col(), this.gridPane).setGraphic(this.createImageView(this.imageTypeToImage.get(imageType)));
+            this.getImageView(p.line(), p.col()).setImage(this.imageTypeToImage.get(imageType));
         }
         this.writeMovementLog(messageToUI);
 
@@ -181,29 +170,53 @@ public class SokobanBoardImages extends BorderPane implements SokobanView {
             this.menu.startTimer();
         }
 
-        if (this.sokoban.allBoxesAreStored() && this.sokoban.getMovesList().size() <= MOVES_LIMIT) {
+        if (this.sokoban.getMovesList().size() > MOVES_LIMIT) {
+            this.showEndGameAlert(false);
+        }
+    }
+
+    /**
+     * Stops the timer, records the score and shows the high scores on the level and the end of game alert
+     * The model calls this once per game, so going back to the completed state never records another score
+     */
+    @Override
+    public void levelCompleted() {
+        if (this.sokoban.getMovesList().size() <= MOVES_LIMIT) {
             this.menu.stopTimer();
 
             TextArea highScoreArea = new TextArea();
             highScoreArea.setMaxWidth(200);
             highScoreArea.setEditable(false);
             highScoreArea.setFont(Font.font("Calibri", FontWeight.BOLD, 15));
-            HBox endHBox = new HBox(this, highScoreArea);
+            this.setRight(highScoreArea);
 
             this.sokoban.createScoreFile();
-            this.sokoban.writeScoreFile(this.level, this.playerName);
-            this.sokoban.writeHighScores(highScoreArea, this.level);
+            try {
+                this.sokoban.writeScoreFile(this.level, this.playerName);
+                highScoreArea.appendText(this.sokoban.highScoresText(this.level));
+            } catch (UncheckedIOException e) {
+                Alert alert = new Alert(Alert.AlertType.ERROR, "Could not load");
+                alert.show();
+            }
 
-            Scene scene = new Scene(endHBox);
-            this.primaryStage.setScene(scene);
+            this.primaryStage.sizeToScene();
 
             this.showEndGameAlert(true);
-
-        } else if (this.sokoban.getMovesList().size() > MOVES_LIMIT) {
-            this.showEndGameAlert(false);
         }
     }
 
+    /**
+     * Warns the player that the level can no longer be completed from this position
+     */
+    @Override
+    public void positionLost() {
+        Alert alert = new Alert(Alert.AlertType.WARNING);
+        alert.setTitle("Position Lost");
+        alert.setHeaderText("A box can no longer reach an end position!");
+        alert.setContentText("Undo the last moves or restart the level.");
+        Platform.runLater(alert::show);
+    }
+
     /**
      * Shows an alert with text (that differs if the player lost or won) with set on action button to restart or exit the game
      *
@@ -263,16 +276,40 @@ public class SokobanBoardImages extends BorderPane implements SokobanView {
         return this.playerName;
     }
 
+    public String getEnvironment() {
+        return this.environment;
+    }
+
     /**
-     * Restarts the game
+     * Changes the images of the board without restarting the game: every image view gets the image of the
+     * same image type in the new environment
+     *
+     * @param environment folder of the images, inside images, like "Default/"
+     */
+    public void setEnvironment(String environment) {
+        this.environment = environment;
+        this.imageTypeToImage = ThemeCache.get(environment);
+        for (int line = 0; line < this.sokoban.getNLines(); line++) {
+            for (int col = 0; col < this.sokoban.getNCols(); col++) {
+                ImageType imageType = this.sokoban.imageForPosition(new Position(line, col));
+                this.imageViews[line][col].setImage(this.imageTypeToImage.get(imageType));
+            }
+        }
+    }
+
+    /**
+     * Restarts the level in place: the model goes back to the initial state and only the changed labels are
+     * updated, the scene, the menu and the player name are kept
      *
      * @param primaryStage current stage
      */
     public void restart(Stage primaryStage) {
-        StartJavaFXGUIImages newGame = new StartJavaFXGUIImages();
-        newGame.setEnvironment(this.environment);
-        newGame.setLevel(this.level);
-        newGame.start(primaryStage);
+        this.setRight(null); // high scores of the finished game
+        this.textArea.setText("Moves " + this.level.levelName() + "\n");
+        this.menu.restart();
+        this.sokoban.reset();
+        primaryStage.sizeToScene();
+        this.requestFocus();
     }
 
     /**
@@ -281,7 +318,7 @@ public class SokobanBoardImages extends BorderPane implements SokobanView {
     public void setupUI() {
         this.menu = new SokobanMenuBar(this.level, this.primaryStage,
                 this.textArea, this.sokoban,
-                this, this.environment);
+                this);
         MenuBar menuBar = this.menu.createMenuBar();
         this.setTop(menuBar);
     }
@@ -7,7 +7,7 @@ import javafx.scene.control.*;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 import javafx.util.Duration;
-import pt.ipbeja.po2.sokoban2023.model.Direction;
+import pt.ipbeja.po2.sokoban2023.model.Course;
 import pt.ipbeja.po2.sokoban2023.model.Level;
 import pt.ipbeja.po2.sokoban2023.model.Position;
 import pt.ipbeja.po2.sokoban2023.model.SokobanGameModel;
@@ -30,7 +30,6 @@ public class SokobanMenuBar {
     private final Level level;
     private final Stage primaryStage;
     private final TextArea textArea;
-    private final String environment;
     private Label timerLabel;
     private Timeline timer;
     private int seconds;
@@ -45,17 +44,15 @@ public class SokobanMenuBar {
      * @param textArea     area with the player movements
      * @param sokoban      Game model
      * @param boardImages  SokobanBoardImages
-     * @param environment  the current environment of the game
      */
     public SokobanMenuBar(Level level, Stage primaryStage,
                           TextArea textArea, SokobanGameModel sokoban,
-                          SokobanBoardImages boardImages, String environment) {
+                          SokobanBoardImages boardImages) {
         this.level = level;
         this.primaryStage = primaryStage;
         this.textArea = textArea;
         this.sokoban = sokoban;
         this.boardImages = boardImages;
-        this.environment = environment;
     }
 
     /**
@@ -76,12 +73,15 @@ public class SokobanMenuBar {
         MenuItem redo = new MenuItem("Redo");
         redo.setOnAction(event -> this.redoMove());
 
+        MenuItem goToMove = new MenuItem("Go To Move");
+        goToMove.setOnAction(event -> this.goToMove());
+
         MenuItem changeEnvironment = new MenuItem("Change Environment");
         changeEnvironment.setOnAction(event -> changeEnvironment());
 
         this.loadKeeperCourse = new MenuItem("Load Keeper's Course");
         loadKeeperCourse.setOnAction(event -> loadCourse());
-        Menu generateMenu = new Menu("File", null, writeMoves, swapLevel, loadKeeperCourse, changeEnvironment, undo, redo);
+        Menu generateMenu = new Menu("File", null, writeMoves, swapLevel, loadKeeperCourse, changeEnvironment, undo, redo, goToMove);
         this.timerLabel = new Label("00:00");
         Menu time = new Menu("", this.timerLabel);
 
@@ -92,46 +92,10 @@ public class SokobanMenuBar {
      * function use to undo movements
      */
     private void undoMove() {
-        List<List<Position>> gameStates = this.sokoban.getUndoGameStates();
-        // Mechanism would only work if size of gameStates > 1
-        if (gameStates.size() > 1) {
+        // Mechanism would only work if there is a move to undo
+        if (this.sokoban.canUndo()) {
             this.textArea.appendText("UNDO ");
-
-            List<Position> currState = gameStates.get(gameStates.size() - 1);
-            List<Position> prevState = gameStates.get(gameStates.size() - 2);
-            Position currKeeperPos = currState.get(0);
-            Position prevKeeperPos = prevState.get(0);
-
-            // get current and previous boxes positions
-            List<Position> currBoxPositions = new ArrayList<>();
-            List<Position> prevBoxPositions = new ArrayList<>();
-            for (Position currBoxPos : currState) {
-                if (!currBoxPos.equals(currKeeperPos)) {
-                    currBoxPositions.add(currBoxPos);
-                }
-            }
-            for (Position prevBoxPos : prevState) {
-                if (!prevBoxPos.equals(prevKeeperPos)) {
-                    prevBoxPositions.add(prevBoxPos);
-                }
-            }
-
-            //asserts that the size of the list of boxes positions
-            assert (currBoxPositions.size() == prevBoxPositions.size());
-
-            currBoxPositions.sort(Comparator.comparingInt(Position::line).thenComparing(Position::col));
-            prevBoxPositions.sort(Comparator.comparingInt(Position::line).thenComparing(Position::col));
-            // if there is a different box position in the list that box as to move to the previous position
-            if (!currBoxPositions.equals(prevBoxPositions)) {
-                List<Position> differentBoxes = this.getDifferentBoxes(currBoxPositions, prevBoxPositions);
-                this.sokoban.moveBoxTo(differentBoxes.get(0), differentBoxes.get(1));
-            }
-
-            this.sokoban.moveKeeperTo(prevKeeperPos);
-
-            // delete the most recent game state from the undoGameStates list
-            this.sokoban.setUndoGameStates(gameStates.subList(0, gameStates.size() - 2));
-            this.sokoban.incRedoCounter(); //increments redo counter so it's possible to redo
+            this.sokoban.undo();
         }
     }
 
@@ -140,21 +104,47 @@ public class SokobanMenuBar {
      */
     private void redoMove() {
         this.boardImages.setDisable(true);
-        // Mechanism would only work if size of redoCounter > 0
-        if (this.sokoban.getRedoCounter() > 0) {
+        // Mechanism would only work if there is an undone move
+        if (this.sokoban.canRedo()) {
             this.textArea.appendText("REDO ");
-            List<List<Position>> redoGameStates = this.sokoban.getRedoGameStates();
-            List<Position> redoPrevState = redoGameStates.get(redoGameStates.size() - 2);
-            Position redoPrevKeeperPos = redoPrevState.get(0);
-            this.sokoban.moveKeeperTo(redoPrevKeeperPos);
-
-            // delete the most recent game state on RedoGameStates list
-            this.sokoban.setRedoGameStates(redoGameStates.subList(0, redoGameStates.size() - 2));
-            this.sokoban.decRedoCounter();
+            this.sokoban.redo();
         }
         this.boardImages.setDisable(false);
     }
 
+    /**
+     * Asks for a move number and jumps to the game state after that move
+     */
+    private void goToMove() {
+        TextInputDialog dialog = new TextInputDialog(String.valueOf(this.sokoban.getMoveIndex()));
+        dialog.setTitle("Go To Move");
+        dialog.setHeaderText("Move number (0 to " + this.sokoban.getHistorySize() + "):");
+        dialog.setContentText("Move:");
+        dialog.showAndWait().ifPresent(text -> {
+            try {
+                int moveIndex = Integer.parseInt(text.strip());
+                if (moveIndex >= 0 && moveIndex <= this.sokoban.getHistorySize()) {
+                    this.seekMove(moveIndex);
+                    return;
+                }
+            } catch (NumberFormatException e) {
+                // falls through to the alert
+            }
+            Alert alert = new Alert(Alert.AlertType.ERROR, "Invalid move number");
+            alert.show();
+        });
+    }
+
+    /**
+     * function use to jump to a move of the history
+     *
+     * @param moveIndex number of moves to keep
+     */
+    private void seekMove(int moveIndex) {
+        this.textArea.appendText("SEEK " + moveIndex + "\n");
+        this.sokoban.seek(moveIndex);
+    }
+
     /**
      * Chooses the file to change level to
      */
@@ -182,34 +172,13 @@ public class SokobanMenuBar {
      * @param levelFileName Level file name
      */
     private void readLevel(List<String> levelFile, String levelFileName) {
-        //gets keeper position and number of boxes
-        int keeperLine = Integer.parseInt(levelFile.get(1).substring(0, levelFile.get(1).indexOf(" ")));
-        int keeperCol = Integer.parseInt(levelFile.get(1).substring(levelFile.get(1).indexOf(" ") + 1));
-        int boxNum = Integer.parseInt(levelFile.get(2));
-
-        //gets every box to position
-        Set<Position> boxesPos = new HashSet<>();
-        for (int i = 3; i < boxNum + 3; i++) {
-            int boxLine = Integer.parseInt(levelFile.get(i).substring(0, levelFile.get(i).indexOf(" ")));
-            int boxCol = Integer.parseInt(levelFile.get(i).substring(levelFile.get(i).indexOf(" ") + 1));
-            boxesPos.add(new Position(boxLine, boxCol));
-        }
-
-        //creates the board
-        StringBuilder board = new StringBuilder();
-        for (int j = boxNum + 3; j < levelFile.size(); j++) {
-            if (j < levelFile.size() - 1) {
-                board.append(levelFile.get(j)).append("\n");
-            } else board.append(levelFile.get(j));
-        }
-
         //creates the new level
-        Level newLevel = new Level(levelFileName.substring(0, levelFileName.length() - 4), new Position(keeperLine, keeperCol), boxesPos, String.valueOf(board));
+        Level newLevel = Level.fromLines(levelFile, levelFileName.substring(0, levelFileName.length() - 4));
 
         //creates a new game with the new level and shows it on the current stage
         StartJavaFXGUIImages newGame = new StartJavaFXGUIImages();
         newGame.setLevel(newLevel);
-        newGame.setEnvironment(this.environment);
+        newGame.setEnvironment(this.boardImages.getEnvironment());
         newGame.start(this.primaryStage);
     }
 
@@ -274,63 +243,6 @@ public class SokobanMenuBar {
         this.timer.stop();
     }
 
-    /**
-     * Gets the positions that don't have a match in the other List
-     *
-     * @param currentBoxesPos first list of positions
-     * @param prevBoxesPos    second list of positions
-     * @return a list with the position that didn't match
-     */
-    private List<Position> getDifferentBoxes(List<Position> currentBoxesPos, List<Position> prevBoxesPos) {
-        List<Position> differentPositions = new ArrayList<>();
-        // for circle gets current box that doesn't match the previous box list
-        for (Position currPos : currentBoxesPos) {
-            boolean foundMatch = false;
-            for (Position prevPos : prevBoxesPos) {
-                if (currPos.equals(prevPos)) {
-                    foundMatch = true;
-                    break;
-                }
-            }
-            if (!foundMatch) {
-                differentPositions.add(currPos);
-            }
-        }
-        // for circle gets previous box that doesn't match the current box list
-        for (Position prevPos : prevBoxesPos) {
-            boolean foundMatch = false;
-            for (Position currPos : currentBoxesPos) {
-                if (currPos.equals(prevPos)) {
-                    foundMatch = true;
-                    break;
-                }
-            }
-            if (!foundMatch) {
-                differentPositions.add(prevPos);
-            }
-        }
-
-        // assert used to make sure that the lists have at least a different position
-        assert (differentPositions.size() > 2);
-
-        // assert used to make that the number of position is even
-        assert (differentPositions.size() % 2 == 0);
-
-        return differentPositions;
-    }
-
-    /**
-     * Sorts a string in alphabetical order
-     *
-     * @param string original string
-     * @return sorted original string
-     */
-    private String sortAlphabetical(String string) {
-        char[] charArray = string.toCharArray();
-        Arrays.sort(charArray);
-        return new String(charArray);
-    }
-
     /**
      * Chooses the course to take ask if the player wants an animation or final position
      * and show what was chosen
@@ -378,38 +290,17 @@ public class SokobanMenuBar {
      * @param courseFile List of strings with all the movements made in the course
      */
     private void loadCourseFinalPos(List<String> courseFile) {
+        Course course = this.readCourse(courseFile);
+        //Checks if the level of the course matches the current level and acts accordingly
+        if (course == null || this.compareLevelName(course.levelName())) return;
         this.boardImages.setDisable(true);
-        for (String textLine : courseFile) {
-            //Checks if the level of the course matches the current level and acts accordingly
-            if (textLine.contains("Level")) {
-                if (this.compareLevelName(textLine)) {
-                    this.boardImages.setDisable(false);
-                    break;
-                }
-            } else {
-                // mechanism for the keeper movement
-                if (textLine.contains("UNDO")) {
-                    undoMove();
-                } else if (textLine.contains("REDO")) {
-                    redoMove();
-                } else {
-                    //gets current and next position of the keeper
-                    int currLine = Integer.parseInt(textLine.substring(1, textLine.indexOf(",")));
-                    String currCol = String.valueOf(textLine.charAt(textLine.indexOf(" ") + 1));
-                    int nextLine = Integer.parseInt(textLine.substring(textLine.lastIndexOf("(") + 1, textLine.lastIndexOf(",")));
-                    String nextCol = String.valueOf(textLine.charAt(textLine.lastIndexOf(" ") + 1));
-
-                    // if col are equal the keeper moved up or down depending on the value of currLine - nextLine
-                    // if line are equal the keeper moved Right or Left depending on how if currCol + nextCol are in alphabetical order
-                    if (currCol.equals(nextCol)) {
-                        if (currLine - nextLine > 0) {
-                            this.sokoban.moveKeeper(Direction.UP);
-
-                        } else this.sokoban.moveKeeper(Direction.DOWN);
-                    } else if ((currCol + nextCol).equals(sortAlphabetical(currCol + nextCol))) {
-                        this.sokoban.moveKeeper(Direction.RIGHT);
-                    } else this.sokoban.moveKeeper(Direction.LEFT);
-                }
+        for (Course.Command command : course.commands()) {
+            // mechanism for the keeper movement
+            switch (command.type()) {
+                case UNDO -> undoMove();
+                case REDO -> redoMove();
+                case SEEK -> seekMove(command.moveIndex());
+                case MOVE -> this.sokoban.moveKeeper(command.direction());
             }
         }
         this.boardImages.setDisable(false);
@@ -421,63 +312,54 @@ public class SokobanMenuBar {
      * @param courseFile List of strings with all the movements made in the course
      */
     private void loadCourseAnimated(List<String> courseFile) {
+        Course course = this.readCourse(courseFile);
+        //Checks if the level of the course matches the current level and acts accordingly
+        if (course == null || this.compareLevelName(course.levelName())) return;
         this.boardImages.setDisable(true);
         Duration duration = Duration.millis(500); //duration of every keyframe 0.5s
         Timeline timeline = new Timeline();
-        int i = 0; // will serve has a counter to multiply the duration so every keyframe starts at the wright time
+        int i = 1; // will serve has a counter to multiply the duration so every keyframe starts at the wright time
 
-        //Checks if the level of the course matches the current level and acts accordingly
-        for (String textLine : courseFile) {
+        for (Course.Command command : course.commands()) {
             i++;
-            if (textLine.contains("Level")) {
-                if (this.compareLevelName(textLine)) {
-                    this.boardImages.setDisable(false);
-                    break;
-                }
-            } else {
-                KeyFrame keyFrame;
-                // mechanism for the keeper movement
-                if (textLine.contains("UNDO")) {
-                    keyFrame = new KeyFrame(duration.multiply(i), event -> undoMove());
-                } else if (textLine.contains("REDO")) {
-                    keyFrame = new KeyFrame(duration.multiply(i), event -> redoMove());
-                } else {
-                    //gets current and next position of the keeper
-                    int currLine = Integer.parseInt(textLine.substring(1, textLine.indexOf(",")));
-                    String currCol = String.valueOf(textLine.charAt(textLine.indexOf(" ") + 1));
-                    int nextLine = Integer.parseInt(textLine.substring(textLine.lastIndexOf("(") + 1, textLine.lastIndexOf(",")));
-                    String nextCol = String.valueOf(textLine.charAt(textLine.lastIndexOf(" ") + 1));
-
-                    // if col are equal the keeper moved up or down depending on the value of currLine - nextLine
-                    // if line are equal the keeper moved Right or Left depending on how if currCol + nextCol are in alphabetical order
-                    if (currCol.equals(nextCol)) {
-                        if (currLine - nextLine > 0) {
-                            keyFrame = new KeyFrame(duration.multiply(i), event -> this.sokoban.moveKeeper(Direction.UP));
-                        } else {
-                            keyFrame = new KeyFrame(duration.multiply(i), event -> this.sokoban.moveKeeper(Direction.DOWN));
-                        }
-                    } else if ((currCol + nextCol).equals(sortAlphabetical(currCol + nextCol))) {
-                        keyFrame = new KeyFrame(duration.multiply(i), event -> this.sokoban.moveKeeper(Direction.RIGHT));
-                    } else {
-                        keyFrame = new KeyFrame(duration.multiply(i), event -> this.sokoban.moveKeeper(Direction.LEFT));
-                    }
-                }
-                timeline.getKeyFrames().add(keyFrame); //adds all keyFrames to timeline
-            }
+            // mechanism for the keeper movement
+            KeyFrame keyFrame = switch (command.type()) {
+                case UNDO -> new KeyFrame(duration.multiply(i), event -> undoMove());
+                case REDO -> new KeyFrame(duration.multiply(i), event -> redoMove());
+                case SEEK -> new KeyFrame(duration.multiply(i), event -> seekMove(command.moveIndex()));
+                case MOVE -> new KeyFrame(duration.multiply(i), event -> this.sokoban.moveKeeper(command.direction()));
+            };
+            timeline.getKeyFrames().add(keyFrame); //adds all keyFrames to timeline
         }
         timeline.play();
         timeline.setOnFinished(event -> this.boardImages.setDisable(false));
     }
 
     /**
-     * compares a string of the first line of the course file to see if it is the current level
+     * Parses a course, showing an alert if a line is not a command
+     *
+     * @param courseFile lines of the course file
+     * @return the course, or null if it could not be parsed
+     */
+    private Course readCourse(List<String> courseFile) {
+        try {
+            return Course.fromLines(courseFile);
+        } catch (IllegalArgumentException e) {
+            Alert alert = new Alert(Alert.AlertType.ERROR, "Invalid course: " + e.getMessage());
+            alert.show();
+            return null;
+        }
+    }
+
+    /**
+     * compares the level name of the course to see if it is the current level
      * show alert if levels are different
      *
-     * @param levelTextLine text line with the level name
-     * @return a boolean true if levels are equal else false
+     * @param courseLevelName level name of the course, null if the course has no level line
+     * @return a boolean true if levels are different else false
      */
-    private boolean compareLevelName(String levelTextLine) {
-        if (!levelTextLine.substring(levelTextLine.indexOf(" ") + 1).equals(this.level.levelName())) {
+    private boolean compareLevelName(String courseLevelName) {
+        if (courseLevelName != null && !courseLevelName.equals(this.level.levelName())) {
             Alert alert = new Alert(Alert.AlertType.INFORMATION);
             alert.setTitle("Wrong Level");
             alert.setHeaderText("Try again with " + this.level.levelName());
@@ -488,7 +370,7 @@ public class SokobanMenuBar {
     }
 
     /**
-     * Changes the game environment
+     * Changes the game environment in place, the game goes on with the images of the new environment
      */
     public void changeEnvironment() {
         List<String> choices = new ArrayList<>();
@@ -497,24 +379,30 @@ public class SokobanMenuBar {
         choices.add("Police Station");
         choices.add("Pokemon");
 
-        ChoiceDialog<String> dialog = new ChoiceDialog<>("Default", choices);
+        // choices are in the order of ThemeCache.ENVIRONMENTS
+        final String current = choices.get(ThemeCache.ENVIRONMENTS.indexOf(this.boardImages.getEnvironment()));
+        ChoiceDialog<String> dialog = new ChoiceDialog<>(current, choices);
         dialog.setTitle("Change Environment");
-        dialog.setHeaderText("Warning: Changing the environment will restart the Level");
+        dialog.setHeaderText("Choose the images of the game");
         dialog.setContentText("Environment:");
 
-        StartJavaFXGUIImages newGame = new StartJavaFXGUIImages();
-        newGame.setLevel(this.level);
-        String result = dialog.showAndWait().orElse(choices.get(0));
-        if (result.equals(choices.get(0))) newGame.setEnvironment("Default/");
-        else if (result.equals(choices.get(1))) newGame.setEnvironment("Super_Mario/");
-        else if (result.equals(choices.get(2))) newGame.setEnvironment("Police_Station/");
-        else if (result.equals(choices.get(3))) newGame.setEnvironment("Pokemon/");
-
-
-        newGame.start(this.primaryStage);
+        dialog.showAndWait().ifPresent(result ->
+                this.boardImages.setEnvironment(ThemeCache.ENVIRONMENTS.get(choices.indexOf(result))));
+        this.boardImages.requestFocus();
     }
 
     public void setLoadKeeperCourseDisable() {
         this.loadKeeperCourse.setDisable(true);
     }
+
+    /**
+     * Puts the menu back as at the start of the level: timer stopped at 00:00 and the course can be loaded
+     */
+    public void restart() {
+        if (this.timer != null) this.timer.stop();
+        this.seconds = 0;
+        this.minutes = 0;
+        this.timerLabel.setText("00:00");
+        this.loadKeeperCourse.setDisable(false);
+    }
 }
\ No newline at end of file
@@ -28,20 +28,14 @@ public class StartJavaFXGUIImages extends Application {
 
     @Override
     public void start(Stage primaryStage) {
+        ThemeCache.preloadAll(); // only the first game decodes the images
         SokobanGameModel sokoban = new SokobanGameModel(this.level);
 
         SokobanBoardImages sokobanBoardImages =
                 new SokobanBoardImages(sokoban,
                         primaryStage,
                         this.level,
-                        this.environment,
-                        "keeper.png",
-                        "box.png",
-                        "boxend.png",
-                        "wall.png",
-                        "free.png",
-                        "end.png"
-                );
+                        this.environment);
 
         Scene scene = new Scene(sokobanBoardImages);
         primaryStage.setTitle("Sokoban");
@@ -0,0 +1,119 @@
+package pt.ipbeja.po2.sokoban2023.guiimages;
+
+import javafx.scene.image.Image;
+import pt.ipbeja.po2.sokoban2023.images.ImageType;
+
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Textures of the game environments, shared by every game of the process
+ * Each environment is decoded once, already scaled to SQUARE_SIZE, by a background thread;
+ * preloadAll starts decoding all environments so that changing environment or restarting never waits
+ * With a limit on the number of environments kept, the least recently used one is dropped when another one
+ * is requested, never the one requested; preloading only fills the room left and never drops an environment
+ *
+ * @author Diogo Patusca 23925, João Costa 22890
+ * @version 2023/06/11
+ */
+public final class ThemeCache {
+    public static final int SQUARE_SIZE = 60;
+    public static final List<String> ENVIRONMENTS = List.of("Default/", "Super_Mario/", "Police_Station/", "Pokemon/");
+    private static final ExecutorService LOADER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "theme-loader");
+        thread.setDaemon(true); // never keeps the game from exiting
+        return thread;
+    });
+    /**
+     * Environments in access order, the least recently used first
+     */
+    private static final LinkedHashMap<String, CompletableFuture<Map<ImageType, Image>>> THEMES =
+            new LinkedHashMap<>(8, 0.75f, true);
+    private static int maxThemes = 0;
+
+    private ThemeCache() {
+    }
+
+    /**
+     * Starts decoding in the background the environments not cached yet, while there is room for them
+     * The cached environments keep their order, so the ones in use are not dropped by a later request
+     */
+    public static synchronized void preloadAll() {
+        for (String environment : ENVIRONMENTS) {
+            if (maxThemes > 0 && THEMES.size() >= maxThemes) return;
+            if (!THEMES.containsKey(environment)) load(environment);
+        }
+    }
+
+    /**
+     * @param environment folder of the images, inside images, like "Default/"
+     * @return the image of each image type, waiting for the background thread if it is still decoding them
+     */
+    public static Map<ImageType, Image> get(String environment) {
+        return load(environment).join();
+    }
+
+    /**
+     * Limits the environments kept, dropping the least recently used ones
+     *
+     * @param max highest number of environments kept, 0 for no limit
+     */
+    public static synchronized void setMaxThemes(int max) {
+        if (max < 0) throw new IllegalArgumentException("Negative limit: " + max);
+        maxThemes = max;
+        evict();
+    }
+
+    /**
+     * @return the environments kept, the least recently used first
+     */
+    public static synchronized List<String> cachedThemes() {
+        return List.copyOf(THEMES.keySet());
+    }
+
+    /**
+     * Makes environment the most recently used, decoding it in the background if it is not cached
+     *
+     * @param environment folder of the images, inside images, like "Default/"
+     * @return the images of environment, when they are decoded
+     */
+    static synchronized CompletableFuture<Map<ImageType, Image>> load(String environment) {
+        CompletableFuture<Map<ImageType, Image>> theme = THEMES.get(environment);
+        if (theme == null) {
+            theme = CompletableFuture.supplyAsync(() -> decode(environment), LOADER);
+            THEMES.put(environment, theme);
+            evict();
+        }
+        return theme;
+    }
+
+    /**
+     * Drops the least recently used environments over the limit, the environment just requested is the most
+     * recently used, so it is kept with any limit
+     */
+    private static synchronized void evict() {
+        Iterator<String> eldest = THEMES.keySet().iterator();
+        while (maxThemes > 0 && THEMES.size() > maxThemes) {
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Decodes the images of an environment, the file of each image type is its name in lower case
+     */
+    private static Map<ImageType, Image> decode(String environment) {
+        Map<ImageType, Image> textures = new EnumMap<>(ImageType.class);
+        for (ImageType imageType : ImageType.values()) {
+            String url = "images/" + environment + imageType.name().toLowerCase() + ".png";
+            textures.put(imageType, new Image(url, SQUARE_SIZE, SQUARE_SIZE, false, true));
+        }
+        return textures;
+    }
+}
@@ -4,10 +4,8 @@ package pt.ipbeja.po2.sokoban2023.guitext;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Label;
 import javafx.scene.layout.GridPane;
-import pt.ipbeja.po2.sokoban2023.model.MessageToUI;
-import pt.ipbeja.po2.sokoban2023.model.Position;
-import pt.ipbeja.po2.sokoban2023.model.SokobanGameModel;
-import pt.ipbeja.po2.sokoban2023.model.SokobanView;
+import pt.ipbeja.po2.sokoban2023.guiimages.KeeperKeys;
+import pt.ipbeja.po2.sokoban2023.model.*;
 
 
 /**
@@ -19,6 +17,7 @@ import pt.ipbeja.po2.sokoban2023.model.SokobanView;
  */
 public class SokobanBoardText extends GridPane implements SokobanView {
     private final SokobanGameModel sokoban;
+    private final Label[][] labels;
     private static final int SQUARE_SIZE = 80;
 
     /**
@@ -26,8 +25,20 @@ public class SokobanBoardText extends GridPane implements SokobanView {
      */
     public SokobanBoardText(SokobanGameModel sokoban) {
         this.sokoban = sokoban;
+        this.labels = new Label[sokoban.getNLines()][sokoban.getNCols()];
         this.buildGUI();
-        this.sokoban.setOnKeyPressedMovement(this);
+        KeeperKeys.setOnKeyPressedMovement(this, sokoban);
+    }
+
+    /**
+     * function that gets the labels of this GridPane, from the index built in buildGUI
+     *
+     * @param line line of label in board
+     * @param col  column of label in board
+     * @return the label at line, col
+     */
+    private Label getLabel(int line, int col) {
+        return this.labels[line][col];
     }
 
     /**
@@ -44,6 +55,7 @@ public class SokobanBoardText extends GridPane implements SokobanView {
                 label.setMinWidth(SQUARE_SIZE);
                 label.setMinHeight(SQUARE_SIZE);
                 this.add(label, col, line); // add label to GridPane
+                this.labels[line][col] = label;
             }
         }
         this.requestFocus();
@@ -59,15 +71,20 @@ public class SokobanBoardText extends GridPane implements SokobanView {
     public void update(MessageToUI messageToUI) {
         for (Position p : messageToUI.positions()) {
             String s = this.sokoban.textForPosition(p);
-            this.sokoban.getLabel(p.line(), p.col(), this).setText(s);
-        }
-        if (this.sokoban.allBoxesAreStored()) {
-            Alert alert = new Alert(Alert.AlertType.INFORMATION);
-            alert.setTitle("");
-            alert.setHeaderText("");
-            alert.setContentText("Level completed!");
-            alert.showAndWait();
-            System.exit(0);
+            this.getLabel(p.line(), p.col()).setText(s);
         }
     }
+
+    /**
+     * Shows the end of game alert and exits
+     */
+    @Override
+    public void levelCompleted() {
+        Alert alert = new Alert(Alert.AlertType.INFORMATION);
+        alert.setTitle("");
+        alert.setHeaderText("");
+        alert.setContentText("Level completed!");
+        alert.showAndWait();
+        System.exit(0);
+    }
 }
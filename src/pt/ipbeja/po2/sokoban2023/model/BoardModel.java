@@ -1,12 +1,13 @@
 package pt.ipbeja.po2.sokoban2023.model;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-import java.util.Map;
+import java.util.Arrays;
+import java.util.SplittableRandom;
 
 /**
  * Game board contents
+ * The board is kept in a flat byte array, one byte per cell, surrounded by a border of walls
+ * so that a keeper or box moving one position out of the board always hits a WALL
+ * and no bounds check is needed on every move
  *
  * @author Diogo Patusca 23925, João Costa 22890
  * @version 2023/06/11
@@ -14,32 +15,349 @@ import java.util.Map;
  */
 public class BoardModel {
 
-    private final List<List<PositionContent>> board;
+    private static final PositionContent[] CONTENTS = PositionContent.values();
+    private static final byte WALL = (byte) PositionContent.WALL.ordinal();
+    private static final byte FREE = (byte) PositionContent.FREE.ordinal();
+    private static final byte END = (byte) PositionContent.END.ordinal();
+    private static final long ZOBRIST_SEED = 0x5E0BA2023L;
+    /**
+     * Push distance of a box that can never reach an end position
+     */
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private final int nLines;
+    private final int nCols;
+    private final int stride;
+    private final byte[] cells;
+    private final Position[] positions;
+    private final int[] offsets;
+    private final long[] boxKeys;
+    private final long[] keeperKeys;
+    private final int[] endCells;
+    private volatile long[] deadSquares;
+    private volatile int[] pushDistances;
 
     public BoardModel(String boardContent) {
-        Map<Character, PositionContent> pc =
-                Map.of('F', PositionContent.FREE,
-                        'W', PositionContent.WALL,
-                        'E', PositionContent.END);
-        List<List<PositionContent>> boardPos = new ArrayList<>();
-        boardPos.add(new ArrayList<>());
+        // first pass: board dimensions
+        int lines = 1;
+        int cols = -1;
+        for (int i = 0; i < boardContent.length(); i++) {
+            if (boardContent.charAt(i) == '\n') {
+                if (cols < 0) cols = i;
+                lines++;
+            }
+        }
+        if (cols < 0) cols = boardContent.length();
+        this.nLines = lines;
+        this.nCols = cols;
+        this.stride = cols + 2;
+
+        // second pass: contents, the border stays at 0 (WALL)
+        this.cells = new byte[(lines + 2) * this.stride];
+        int line = 0;
+        int col = 0;
         for (int i = 0; i < boardContent.length(); i++) {
             char c = boardContent.charAt(i);
-            if (c == '\n') boardPos.add(new ArrayList<>());
-            else boardPos.get(boardPos.size() - 1).add(pc.get(c));
+            if (c == '\n') {
+                line++;
+                col = 0;
+            } else {
+                if (col < cols) this.cells[this.cell(line, col)] = this.contentCode(c);
+                col++;
+            }
+        }
+
+        int ends = 0;
+        for (byte content : this.cells) {
+            if (content == END) ends++;
+        }
+        this.endCells = new int[ends];
+        for (int cell = 0, end = 0; cell < this.cells.length; cell++) {
+            if (this.cells[cell] == END) this.endCells[end++] = cell;
+        }
+
+        // one shared Position per cell, so moves do not need to create positions
+        this.positions = new Position[this.cells.length];
+        for (int cell = 0; cell < this.cells.length; cell++) {
+            this.positions[cell] = new Position(this.lineOf(cell), this.colOf(cell));
+        }
+        this.offsets = new int[Direction.values().length];
+        for (Direction dir : Direction.values()) {
+            this.offsets[dir.ordinal()] = dir.offset(this.stride);
+        }
+
+        // Zobrist keys, fixed seed so the same board always hashes the same way
+        SplittableRandom random = new SplittableRandom(ZOBRIST_SEED);
+        this.boxKeys = new long[this.cells.length];
+        this.keeperKeys = new long[this.cells.length];
+        for (int cell = 0; cell < this.cells.length; cell++) {
+            this.boxKeys[cell] = random.nextLong();
+            this.keeperKeys[cell] = random.nextLong();
         }
-        this.board = Collections.unmodifiableList(boardPos);
+    }
+
+    /**
+     * Converts a board file character to its content code
+     *
+     * @param c character from the board content
+     * @return content code stored in this.cells
+     */
+    private byte contentCode(char c) {
+        return switch (c) {
+            case 'F' -> FREE;
+            case 'W' -> WALL;
+            case 'E' -> END;
+            default -> throw new IllegalArgumentException("Unknown board character: " + c);
+        };
     }
 
     public int nLines() {
-        return this.board.size();
+        return this.nLines;
     }
 
     public int nCols() {
-        return this.board.get(0).size();
+        return this.nCols;
+    }
+
+    /**
+     * @return distance between two vertically adjacent cells
+     */
+    public int stride() {
+        return this.stride;
+    }
+
+    /**
+     * @return number of cells, including the wall border
+     */
+    public int nCells() {
+        return this.cells.length;
+    }
+
+    /**
+     * Index of a position in the flat board
+     * Valid for positions inside the board and for the wall border around it
+     *
+     * @param line board line
+     * @param col  board column
+     * @return cell index
+     */
+    public int cell(int line, int col) {
+        return (line + 1) * this.stride + col + 1;
+    }
+
+    /**
+     * @param pos board position
+     * @return cell index of pos
+     */
+    public int cell(Position pos) {
+        return this.cell(pos.line(), pos.col());
+    }
+
+    /**
+     * @param cell cell index
+     * @return board line of the cell
+     */
+    public int lineOf(int cell) {
+        return cell / this.stride - 1;
+    }
+
+    /**
+     * @param cell cell index
+     * @return board column of the cell
+     */
+    public int colOf(int cell) {
+        return cell % this.stride - 1;
+    }
+
+    /**
+     * @param cell cell index
+     * @return the shared Position of the cell
+     */
+    public Position position(int cell) {
+        return this.positions[cell];
+    }
+
+    /**
+     * @param line board line
+     * @param col  board column
+     * @return the shared Position at line, col
+     */
+    public Position position(int line, int col) {
+        return this.positions[this.cell(line, col)];
+    }
+
+    /**
+     * @param dir movement direction
+     * @return cell index offset of one step in direction dir
+     */
+    public int offset(Direction dir) {
+        return this.offsets[dir.ordinal()];
+    }
+
+    /**
+     * @param cell cell index
+     * @return Zobrist key of a box in the cell
+     */
+    public long boxKey(int cell) {
+        return this.boxKeys[cell];
+    }
+
+    /**
+     * @param cell cell index
+     * @return Zobrist key of the keeper in the cell
+     */
+    public long keeperKey(int cell) {
+        return this.keeperKeys[cell];
+    }
+
+    /**
+     * @param cell cell index
+     * @return position content of the cell
+     */
+    public PositionContent contentAt(int cell) {
+        return CONTENTS[this.cells[cell]];
+    }
+
+    /**
+     * @param cell cell index
+     * @return true if the cell is a wall (the border included)
+     */
+    public boolean isWall(int cell) {
+        return this.cells[cell] == WALL;
+    }
+
+    /**
+     * @return number of end positions
+     */
+    public int nEnds() {
+        return this.endCells.length;
+    }
+
+    /**
+     * @param end end position number, from 0 to nEnds() - 1
+     * @return cell index of the end position
+     */
+    public int endCell(int end) {
+        return this.endCells[end];
+    }
+
+    /**
+     * @param cell cell index
+     * @return true if the cell is an end position
+     */
+    public boolean isEnd(int cell) {
+        return this.cells[cell] == END;
     }
 
     public PositionContent getPosContent(Position pos) {
-        return this.board.get(pos.line()).get(pos.col());
+        return this.contentAt(this.cell(pos));
+    }
+
+    /**
+     * A dead square is a free cell from where a box can never reach an end position,
+     * like a corner without end or a wall side without end
+     * The map is built on first use and shared by everyone using this board
+     *
+     * @param cell cell index
+     * @return true if a box in cell can never be stored
+     */
+    public boolean isDeadSquare(int cell) {
+        long[] dead = this.deadSquares;
+        if (dead == null) {
+            dead = this.computeDeadSquares();
+            this.deadSquares = dead;
+        }
+        return (dead[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    /**
+     * @param pos board position
+     * @return true if a box in pos can never be stored
+     */
+    public boolean isDeadSquare(Position pos) {
+        return this.isDeadSquare(this.cell(pos));
+    }
+
+    /**
+     * Fewest pushes to take a box from cell to an end position, with no other boxes on the board
+     * and ignoring where the keeper can walk, so it never exceeds the real number of pushes
+     * The tables are built on first use and shared by everyone using this board, solver threads included
+     *
+     * @param end  end position number, from 0 to nEnds() - 1
+     * @param cell cell index
+     * @return pushes from cell to the end position, or UNREACHABLE
+     */
+    public int pushDistance(int end, int cell) {
+        int[] distances = this.pushDistances;
+        if (distances == null) {
+            distances = this.computePushDistances();
+            this.pushDistances = distances;
+        }
+        return distances[end * this.cells.length + cell];
+    }
+
+    /**
+     * Pulls a box back from each end position (breadth-first), like computeDeadSquares,
+     * counting the pulls to every cell
+     *
+     * @return one table of nCells() distances per end position, one after the other
+     */
+    private int[] computePushDistances() {
+        int[] distances = new int[this.endCells.length * this.cells.length];
+        Arrays.fill(distances, UNREACHABLE);
+        int[] queue = new int[this.cells.length];
+        for (int end = 0; end < this.endCells.length; end++) {
+            final int base = end * this.cells.length;
+            int head = 0;
+            int tail = 0;
+            distances[base + this.endCells[end]] = 0;
+            queue[tail++] = this.endCells[end];
+            while (head < tail) {
+                final int cell = queue[head++];
+                for (int offset : this.offsets) {
+                    final int boxCell = cell + offset;
+                    if (distances[base + boxCell] == UNREACHABLE && !this.isWall(boxCell) && !this.isWall(boxCell + offset)) {
+                        distances[base + boxCell] = distances[base + cell] + 1;
+                        queue[tail++] = boxCell;
+                    }
+                }
+            }
+        }
+        return distances;
+    }
+
+    /**
+     * Pulls a box back from every end position (flood fill): the cells a box can be pulled to are alive,
+     * all other free cells are dead
+     * A box at cell can be pulled one step in a direction if the next two cells in that direction are not walls
+     *
+     * @return bitmap with the dead squares
+     */
+    private long[] computeDeadSquares() {
+        boolean[] alive = new boolean[this.cells.length];
+        int[] queue = new int[this.cells.length];
+        int head = 0;
+        int tail = 0;
+        for (int end : this.endCells) {
+            alive[end] = true;
+            queue[tail++] = end;
+        }
+        while (head < tail) {
+            final int cell = queue[head++];
+            for (int offset : this.offsets) {
+                final int boxCell = cell + offset;
+                if (!alive[boxCell] && !this.isWall(boxCell) && !this.isWall(boxCell + offset)) {
+                    alive[boxCell] = true;
+                    queue[tail++] = boxCell;
+                }
+            }
+        }
+        long[] dead = new long[(this.cells.length + 63) >>> 6];
+        for (int cell = 0; cell < this.cells.length; cell++) {
+            if (!alive[cell] && !this.isWall(cell)) {
+                dead[cell >>> 6] |= 1L << cell;
+            }
+        }
+        return dead;
     }
 }
@@ -0,0 +1,97 @@
+package pt.ipbeja.po2.sokoban2023.model;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A keeper's course as written by the game: a "Moves <level name>" line and then one line per command,
+ * a move like (3, F)->(4, F) or an UNDO, REDO or SEEK <move number>
+ * UNDO and REDO lines also hold the keeper movement they caused, which is not a move of its own
+ *
+ * @param levelName name of the level of the course, null if the course has no level line
+ * @param commands  commands, in order
+ * @author Diogo Patusca 23925, João Costa 22890
+ * @version 2023/06/11
+ */
+public record Course(String levelName, List<Course.Command> commands) {
+    private static final String LEVEL_PREFIX = "Moves ";
+    private static final Pattern MOVE = Pattern.compile("\\((\\d+), ([A-Z])\\)->\\((\\d+), ([A-Z])\\)");
+
+    public enum Type {MOVE, UNDO, REDO, SEEK}
+
+    /**
+     * One line of a course
+     *
+     * @param line      line number in the course file, from 1
+     * @param type      kind of command
+     * @param from      keeper position before a MOVE, null for the other commands
+     * @param to        keeper position after a MOVE, null for the other commands
+     * @param moveIndex move number of a SEEK, 0 for the other commands
+     */
+    public record Command(int line, Type type, Position from, Position to, int moveIndex) {
+
+        /**
+         * @return direction of a MOVE
+         */
+        public Direction direction() {
+            for (Direction dir : Direction.values()) {
+                if (this.from.move(dir).equals(this.to)) return dir;
+            }
+            throw new IllegalStateException("Line " + this.line + " is not a move to a next position");
+        }
+    }
+
+    /**
+     * @param lines lines of a course file
+     * @return the course
+     * @throws IllegalArgumentException if a line is not a command
+     */
+    public static Course fromLines(List<String> lines) {
+        String levelName = null;
+        List<Command> commands = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            final String text = lines.get(i).strip();
+            final int line = i + 1;
+            if (text.isEmpty()) continue;
+            if (text.startsWith(LEVEL_PREFIX)) {
+                levelName = text.substring(LEVEL_PREFIX.length()).strip();
+            } else if (text.startsWith("UNDO")) {
+                commands.add(new Command(line, Type.UNDO, null, null, 0));
+            } else if (text.startsWith("REDO")) {
+                commands.add(new Command(line, Type.REDO, null, null, 0));
+            } else if (text.startsWith("SEEK")) {
+                try {
+                    final int moveIndex = Integer.parseInt(text.substring(text.indexOf(' ') + 1).strip());
+                    commands.add(new Command(line, Type.SEEK, null, null, moveIndex));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Line " + line + ": bad move number in " + text, e);
+                }
+            } else {
+                Matcher move = MOVE.matcher(text);
+                if (!move.matches()) throw new IllegalArgumentException("Line " + line + ": not a command: " + text);
+                Position from = new Position(Integer.parseInt(move.group(1)), move.group(2).charAt(0) - 'A');
+                Position to = new Position(Integer.parseInt(move.group(3)), move.group(4).charAt(0) - 'A');
+                if (Math.abs(from.line() - to.line()) + Math.abs(from.col() - to.col()) != 1) {
+                    throw new IllegalArgumentException("Line " + line + ": not a move to a next position: " + text);
+                }
+                commands.add(new Command(line, Type.MOVE, from, to, 0));
+            }
+        }
+        return new Course(levelName, List.copyOf(commands));
+    }
+
+    /**
+     * @param courseFile path of the course file
+     * @return the course
+     * @throws IOException              if the file could not be read
+     * @throws IllegalArgumentException if a line is not a command
+     */
+    public static Course load(Path courseFile) throws IOException {
+        return fromLines(Files.readAllLines(courseFile));
+    }
+}
@@ -0,0 +1,161 @@
+package pt.ipbeja.po2.sokoban2023.model;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Replays keeper's courses on their levels without a user interface, many courses in parallel,
+ * and checks that each course is legal and stores all boxes
+ * Usage: CourseVerifier [courses directory] [levels directory] (default: Courses levelFiles)
+ *
+ * @author Diogo Patusca 23925, João Costa 22890
+ * @version 2023/06/11
+ */
+public class CourseVerifier {
+
+    /**
+     * Result of one course
+     *
+     * @param course    name of the course file
+     * @param levelName level of the course
+     * @param passed    true if every command was legal and all boxes ended stored
+     * @param moves     keeper moves made, undone moves and undos included
+     * @param pushes    moves that pushed or pulled a box
+     * @param problem   why the course did not pass, null if it passed
+     */
+    public record Report(String course, String levelName, boolean passed, int moves, int pushes, String problem) {
+
+        @Override
+        public String toString() {
+            return String.format("%s %s %s moves=%d pushes=%d%s", this.course, this.levelName,
+                    this.passed ? "PASS" : "FAIL", this.moves, this.pushes,
+                    this.problem == null ? "" : " (" + this.problem + ")");
+        }
+    }
+
+    /**
+     * @param args courses directory and levels directory
+     * @throws IOException if a directory could not be read
+     */
+    public static void main(String[] args) throws IOException {
+        Path courses = Path.of(args.length > 0 ? args[0] : "Courses");
+        Path levels = Path.of(args.length > 1 ? args[1] : "levelFiles");
+
+        final long start = System.nanoTime();
+        List<Report> reports = verifyAll(courses, levels);
+        final double seconds = (System.nanoTime() - start) / 1e9;
+
+        long passed = 0;
+        long moves = 0;
+        for (Report report : reports) {
+            System.out.println(report);
+            if (report.passed()) passed++;
+            moves += report.moves();
+        }
+        System.out.printf("%d/%d passed, %d moves in %.3fs: %.0f courses/s, %.0f moves/s%n",
+                passed, reports.size(), moves, seconds, reports.size() / seconds, moves / seconds);
+    }
+
+    /**
+     * Verifies every .txt course of a directory, in parallel
+     *
+     * @param courses directory with the course files
+     * @param levels  directory with the level files, a course plays the level file named after its level
+     * @return one report per course, sorted by file name
+     * @throws IOException if a directory could not be read
+     */
+    public static List<Report> verifyAll(Path courses, Path levels) throws IOException {
+        // levels are immutable, so all threads share them
+        Map<String, Level> levelsByName = new HashMap<>();
+        try (Stream<Path> files = Files.list(levels)) {
+            for (Path file : files.filter(f -> f.toString().endsWith(".txt")).toList()) {
+                Level level = Level.load(file);
+                levelsByName.put(level.levelName(), level);
+            }
+        }
+        try (Stream<Path> files = Files.list(courses)) {
+            return files.filter(f -> f.toString().endsWith(".txt")).sorted().toList()
+                    .parallelStream()
+                    .map(file -> verifyFile(file, levelsByName))
+                    .toList();
+        }
+    }
+
+    private static Report verifyFile(Path file, Map<String, Level> levels) {
+        final String name = file.getFileName().toString();
+        Course course;
+        try {
+            course = Course.load(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (IllegalArgumentException e) {
+            return new Report(name, null, false, 0, 0, e.getMessage());
+        }
+        Level level = levels.get(course.levelName());
+        if (level == null) return new Report(name, course.levelName(), false, 0, 0, "no level file");
+        return verify(name, course, level);
+    }
+
+    /**
+     * Replays a course on a new game of its level
+     *
+     * @param name   name of the course, for the report
+     * @param course the course
+     * @param level  the level of the course
+     * @return the report
+     */
+    public static Report verify(String name, Course course, Level level) {
+        SokobanGameModel sokoban = new SokobanGameModel(level);
+        int[] counts = new int[2]; // moves and pushes
+        sokoban.registerView(messageToUI -> {
+            if (messageToUI.getMessage().startsWith("move from")) {
+                counts[0]++;
+                if (messageToUI.positions().size() == 3) counts[1]++;
+            }
+        });
+
+        String problem = null;
+        for (Course.Command command : course.commands()) {
+            problem = apply(sokoban, command);
+            if (problem != null) {
+                problem = "line " + command.line() + ": " + problem;
+                break;
+            }
+        }
+        if (problem == null && !sokoban.allBoxesAreStored()) problem = "not all boxes stored";
+        return new Report(name, level.levelName(), problem == null, counts[0], counts[1], problem);
+    }
+
+    /**
+     * @return why the command is not legal, or null
+     */
+    private static String apply(SokobanGameModel sokoban, Course.Command command) {
+        switch (command.type()) {
+            case MOVE -> {
+                if (!sokoban.getKeeperPosition().equals(command.from())) {
+                    return "keeper is at " + sokoban.getKeeperPosition() + ", not " + command.from();
+                }
+                if (!sokoban.moveKeeper(command.direction())) return "keeper cannot move to " + command.to();
+            }
+            case UNDO -> {
+                if (!sokoban.undo()) return "no move to undo";
+            }
+            case REDO -> {
+                if (!sokoban.redo()) return "no move to redo";
+            }
+            case SEEK -> {
+                if (command.moveIndex() < 0 || command.moveIndex() > sokoban.getHistorySize()) {
+                    return "no move " + command.moveIndex() + " in a history of " + sokoban.getHistorySize();
+                }
+                sokoban.seek(command.moveIndex());
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,188 @@
+package pt.ipbeja.po2.sokoban2023.model;
+
+import java.util.function.IntPredicate;
+
+/**
+ * Finds positions that can never be solved after a push, looking only around the pushed box
+ * so that the cost of a check does not grow with the number of boxes:
+ * - freeze deadlock: the pushed box can no longer move, alone or together with boxes next to it,
+ * and one of those frozen boxes is not in an end position
+ * - corral deadlock: the push closed a small area the keeper cannot enter, and none of the boxes around it
+ * can ever be pushed, while one of them is not in an end position or the area has an end position
+ * (the last rule only holds when there are no more end positions than boxes)
+ * Both checks are conservative: a position reported as a deadlock is always lost
+ *
+ * @author Diogo Patusca 23925, João Costa 22890
+ * @version 2023/06/11
+ * Based on http://sokobano.de/wiki/index.php?title=How_to_detect_deadlocks
+ */
+public class DeadlockDetector {
+    private static final int MAX_FROZEN_BOXES = 32;
+    private static final int MAX_CORRAL_CELLS = 48;
+    private final BoardModel board;
+    private final int[] axisOffsets;
+    private final int[] offsets;
+    private final boolean allEndsNeeded;
+
+    /**
+     * @param board  board of the level
+     * @param nBoxes number of boxes in the level
+     */
+    public DeadlockDetector(BoardModel board, int nBoxes) {
+        this.board = board;
+        this.allEndsNeeded = board.nEnds() <= nBoxes;
+        this.axisOffsets = new int[]{board.offset(Direction.RIGHT), board.offset(Direction.DOWN)};
+        this.offsets = new int[]{board.offset(Direction.LEFT), board.offset(Direction.RIGHT),
+                board.offset(Direction.UP), board.offset(Direction.DOWN)};
+    }
+
+    /**
+     * Checks the position after a push; safe to call from several threads
+     *
+     * @param hasBox  tells if a cell has a box, after the push
+     * @param boxCell cell of the pushed box
+     * @param keeper  cell of the keeper, after the push
+     * @return true if the position can never be solved
+     */
+    public boolean isDeadlockAfterPush(IntPredicate hasBox, int boxCell, int keeper) {
+        return this.isFreezeDeadlock(hasBox, boxCell) || this.isCorralDeadlock(hasBox, boxCell, keeper);
+    }
+
+    /**
+     * Boxes already looked at by one freeze check; they count as walls, which stops the recursion
+     */
+    private static final class FreezeCheck {
+        final int[] cells = new int[MAX_FROZEN_BOXES];
+        int size;
+        boolean offGoal;
+        boolean gaveUp;
+
+        boolean contains(int cell) {
+            for (int i = 0; i < this.size; i++) {
+                if (this.cells[i] == cell) return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * @param hasBox  tells if a cell has a box
+     * @param boxCell cell of the pushed box
+     * @return true if the box is frozen together with a box that is not in an end position
+     */
+    public boolean isFreezeDeadlock(IntPredicate hasBox, int boxCell) {
+        FreezeCheck check = new FreezeCheck();
+        return this.isFrozen(hasBox, boxCell, check) && check.offGoal && !check.gaveUp;
+    }
+
+    /**
+     * A box is frozen if it is blocked both horizontally and vertically
+     */
+    private boolean isFrozen(IntPredicate hasBox, int cell, FreezeCheck check) {
+        if (check.size == MAX_FROZEN_BOXES) {
+            check.gaveUp = true;
+            return false;
+        }
+        check.cells[check.size++] = cell;
+        final boolean frozen = this.isBlocked(hasBox, cell, this.axisOffsets[0], check)
+                && this.isBlocked(hasBox, cell, this.axisOffsets[1], check);
+        if (frozen && !this.board.isEnd(cell)) check.offGoal = true;
+        return frozen;
+    }
+
+    /**
+     * A box is blocked along an axis by a wall on either side, by dead squares on both sides,
+     * or by a frozen box on either side
+     */
+    private boolean isBlocked(IntPredicate hasBox, int cell, int offset, FreezeCheck check) {
+        final int before = cell - offset;
+        final int after = cell + offset;
+        if (this.board.isWall(before) || this.board.isWall(after)
+                || check.contains(before) || check.contains(after)) {
+            return true;
+        }
+        if (this.board.isDeadSquare(before) && this.board.isDeadSquare(after)) {
+            return true;
+        }
+        return (hasBox.test(before) && this.isFrozen(hasBox, before, check))
+                || (hasBox.test(after) && this.isFrozen(hasBox, after, check));
+    }
+
+    /**
+     * Looks for a small closed area next to the pushed box
+     *
+     * @param hasBox  tells if a cell has a box
+     * @param boxCell cell of the pushed box
+     * @param keeper  cell of the keeper
+     * @return true if an area next to the box can never be opened and blocks the solution
+     */
+    public boolean isCorralDeadlock(IntPredicate hasBox, int boxCell, int keeper) {
+        for (int offset : this.offsets) {
+            final int seed = boxCell + offset;
+            if (seed != keeper && !this.board.isWall(seed) && !hasBox.test(seed)
+                    && this.isClosedCorral(hasBox, seed, keeper)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Flood fills the free cells from seed; if the fill stays small and never meets the keeper
+     * it is a corral, and the corral is a deadlock if no box around it can ever be pushed
+     */
+    private boolean isClosedCorral(IntPredicate hasBox, int seed, int keeper) {
+        int[] area = new int[MAX_CORRAL_CELLS];
+        int[] boxes = new int[4 * MAX_CORRAL_CELLS];
+        int areaSize = 0;
+        int nBoxes = 0;
+        boolean hasEnd = false;
+        area[areaSize++] = seed;
+        for (int head = 0; head < areaSize; head++) {
+            final int cell = area[head];
+            if (this.board.isEnd(cell)) hasEnd = true;
+            for (int offset : this.offsets) {
+                final int next = cell + offset;
+                if (this.board.isWall(next) || contains(area, areaSize, next)) continue;
+                if (next == keeper) return false;
+                if (hasBox.test(next)) {
+                    if (!contains(boxes, nBoxes, next)) boxes[nBoxes++] = next;
+                } else {
+                    if (areaSize == MAX_CORRAL_CELLS) return false; // too big to decide quickly
+                    area[areaSize++] = next;
+                }
+            }
+        }
+
+        boolean offGoal = false;
+        for (int i = 0; i < nBoxes; i++) {
+            final int box = boxes[i];
+            if (!this.board.isEnd(box)) offGoal = true;
+            for (int offset : this.offsets) {
+                if (this.canEverPush(hasBox, box, offset, area, areaSize, boxes, nBoxes)) return false;
+            }
+        }
+        return offGoal || (hasEnd && this.allEndsNeeded);
+    }
+
+    /**
+     * A push may become possible if the keeper side is outside the corral and not a corral box,
+     * and the box would not end on a wall, on a corral box or on a dead square
+     */
+    private boolean canEverPush(IntPredicate hasBox, int box, int offset,
+                                int[] area, int areaSize, int[] boxes, int nBoxes) {
+        final int keeperSide = box - offset;
+        final int target = box + offset;
+        return !this.board.isWall(keeperSide) && !contains(area, areaSize, keeperSide)
+                && !contains(boxes, nBoxes, keeperSide)
+                && !this.board.isWall(target) && !contains(boxes, nBoxes, target)
+                && !this.board.isDeadSquare(target);
+    }
+
+    private static boolean contains(int[] cells, int size, int cell) {
+        for (int i = 0; i < size; i++) {
+            if (cells[i] == cell) return true;
+        }
+        return false;
+    }
+}
@@ -2,9 +2,55 @@ package pt.ipbeja.po2.sokoban2023.model;
 
 /**
  * Direction of movement
+ * Each direction knows its line and column deltas so that boards can precompute index offsets
  *
  * @author Diogo Patusca 23925, João Costa 22890
  * @version 2023/06/11
  */
-public enum Direction {LEFT, RIGHT, UP, DOWN}
+public enum Direction {
+    LEFT(0, -1), RIGHT(0, 1), UP(-1, 0), DOWN(1, 0);
 
+    private final int dLine;
+    private final int dCol;
+
+    Direction(int dLine, int dCol) {
+        this.dLine = dLine;
+        this.dCol = dCol;
+    }
+
+    /**
+     * @return line delta of one step in this direction
+     */
+    public int dLine() {
+        return this.dLine;
+    }
+
+    /**
+     * @return column delta of one step in this direction
+     */
+    public int dCol() {
+        return this.dCol;
+    }
+
+    /**
+     * Index offset of one step in this direction on a flat board
+     *
+     * @param stride distance between two vertically adjacent cells
+     * @return offset to add to a cell index
+     */
+    public int offset(int stride) {
+        return this.dLine * stride + this.dCol;
+    }
+
+    /**
+     * @return the direction that undoes a step in this direction
+     */
+    public Direction opposite() {
+        return switch (this) {
+            case LEFT -> RIGHT;
+            case RIGHT -> LEFT;
+            case UP -> DOWN;
+            case DOWN -> UP;
+        };
+    }
+}
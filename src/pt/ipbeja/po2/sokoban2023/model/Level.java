@@ -1,5 +1,10 @@
 package pt.ipbeja.po2.sokoban2023.model;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -20,4 +25,49 @@ public record Level(String levelName, Position keeperPosition, Set<Position> box
                 WFFFFFFW
                 WWWWWWWW""");
     }
+
+    /**
+     * Creates a level from the lines of a level file:
+     * a title line, the keeper line and column, the number of boxes, one line and column per box and then the board
+     *
+     * @param levelFile lines of the level file
+     * @param levelName name of the level
+     * @return the level
+     */
+    public static Level fromLines(List<String> levelFile, String levelName) {
+        //gets keeper position and number of boxes
+        int keeperLine = Integer.parseInt(levelFile.get(1).substring(0, levelFile.get(1).indexOf(" ")));
+        int keeperCol = Integer.parseInt(levelFile.get(1).substring(levelFile.get(1).indexOf(" ") + 1));
+        int boxNum = Integer.parseInt(levelFile.get(2));
+
+        //gets every box to position
+        Set<Position> boxesPos = new HashSet<>();
+        for (int i = 3; i < boxNum + 3; i++) {
+            int boxLine = Integer.parseInt(levelFile.get(i).substring(0, levelFile.get(i).indexOf(" ")));
+            int boxCol = Integer.parseInt(levelFile.get(i).substring(levelFile.get(i).indexOf(" ") + 1));
+            boxesPos.add(new Position(boxLine, boxCol));
+        }
+
+        //creates the board
+        StringBuilder board = new StringBuilder();
+        for (int j = boxNum + 3; j < levelFile.size(); j++) {
+            if (j < levelFile.size() - 1) {
+                board.append(levelFile.get(j)).append("\n");
+            } else board.append(levelFile.get(j));
+        }
+        return new Level(levelName, new Position(keeperLine, keeperCol), boxesPos, String.valueOf(board));
+    }
+
+    /**
+     * Reads a level file, the level name is the file name without extension
+     *
+     * @param levelFile path of the level file
+     * @return the level
+     * @throws IOException if the file could not be read
+     */
+    public static Level load(Path levelFile) throws IOException {
+        String fileName = levelFile.getFileName().toString();
+        String levelName = fileName.contains(".") ? fileName.substring(0, fileName.lastIndexOf('.')) : fileName;
+        return fromLines(Files.readAllLines(levelFile), levelName);
+    }
 }
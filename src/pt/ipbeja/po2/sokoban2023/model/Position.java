@@ -2,6 +2,8 @@ package pt.ipbeja.po2.sokoban2023.model;
 
 /**
  * Position in the board
+ * Also offers a packed int form (line in the high 16 bits, column in the low 16 bits)
+ * for code that stores many coordinates without creating Position objects
  *
  * @author Diogo Patusca 23925, João Costa 22890
  * @version 2023/06/11
@@ -36,11 +38,59 @@ public record Position(int line, int col) {
      * @return the position after moving in direction dir
      */
     public Position move(Direction dir) {
-        return switch (dir) {
-            case UP -> new Position(this.line() - 1, this.col());
-            case DOWN -> new Position(this.line() + 1, this.col());
-            case LEFT -> new Position(this.line(), this.col() - 1);
-            case RIGHT -> new Position(this.line(), this.col() + 1);
-        };
+        return new Position(this.line() + dir.dLine(), this.col() + dir.dCol());
+    }
+
+    /**
+     * Packs a line and a column into one int
+     *
+     * @param line board line
+     * @param col  board column
+     * @return packed coordinates
+     */
+    public static int pack(int line, int col) {
+        return (line << 16) | (col & 0xFFFF);
+    }
+
+    /**
+     * @param packed packed coordinates
+     * @return line of the packed coordinates
+     */
+    public static int packedLine(int packed) {
+        return packed >> 16;
+    }
+
+    /**
+     * @param packed packed coordinates
+     * @return column of the packed coordinates
+     */
+    public static int packedCol(int packed) {
+        return (short) packed;
+    }
+
+    /**
+     * Packed coordinates after moving in direction dir, without creating a Position
+     *
+     * @param packed packed coordinates
+     * @param dir    movement direction
+     * @return the packed coordinates after moving in direction dir
+     */
+    public static int packedMove(int packed, Direction dir) {
+        return pack(packedLine(packed) + dir.dLine(), packedCol(packed) + dir.dCol());
+    }
+
+    /**
+     * @return this position as packed coordinates
+     */
+    public int pack() {
+        return pack(this.line(), this.col());
+    }
+
+    /**
+     * @param packed packed coordinates
+     * @return the position with the packed coordinates
+     */
+    public static Position unpack(int packed) {
+        return new Position(packedLine(packed), packedCol(packed));
     }
 }
@@ -1,27 +1,19 @@
 package pt.ipbeja.po2.sokoban2023.model;
 
-import javafx.collections.ObservableList;
-import javafx.scene.Node;
-import javafx.scene.control.Alert;
-import javafx.scene.control.Label;
-import javafx.scene.control.TextArea;
-import javafx.scene.input.KeyCode;
-import javafx.scene.layout.GridPane;
-import javafx.scene.layout.Pane;
 import pt.ipbeja.po2.sokoban2023.images.ImageType;
 
-import java.awt.*;
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.List;
 import java.util.*;
 
 /**
  * Game board model
  * Contains the game state and reactive behaviour:
  * the interface tells the model what happened and the model tells the interface what to update
+ * Has no user interface dependencies, so it also runs headless (a level in, moves in, state and events out)
  *
  * @author Diogo Patusca 23925, João Costa 22890
  * @version 2023/06/11
@@ -30,39 +22,94 @@ import java.util.*;
 public class SokobanGameModel {
     private final BoardModel board;
     private final Keeper keeper;
-    private final Set<Box> boxes;
+    private final int[] boxCells;
+    private final short[] boxAt;
+    private long boxesHash;
+    private int boxesOnGoal;
+    private int boxesOnDeadSquares;
+    /**
+     * True once all boxes were stored in this game, so that levelCompleted is called only once per game
+     */
+    private boolean completed;
+    private boolean wasLost;
+    private final DeadlockDetector deadlocks;
+    private int lostSince;
     private final List<Position> movesList;
     private final String SCORE_FILE_PATH = "Resources/scores.txt";
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final byte PUSHED = 4;
+    private static final int CHECKPOINT_INTERVAL = 256;
+    private static final int NOT_LOST = Integer.MAX_VALUE;
     private SokobanView view;
-    private List<List<Position>> undoGameStates;
-    private List<List<Position>> redoGameStates;
-    private int redoCounter;
+    private byte[] journal;
+    private int journalSize;
+    private int journalEnd;
+    private final List<int[]> checkpoints;
 
     public SokobanGameModel(Level level) {
         this.board = new BoardModel(level.boardContent());
         this.keeper = new Keeper(level.keeperPosition());
-        this.boxes = this.createSetOfBoxes(level.boxesPositions());
-        this.view = null;
+        this.boxCells = new int[level.boxesPositions().size()];
+        this.boxAt = new short[this.board.nCells()];
+        this.placeBoxes(level.boxesPositions());
+        this.deadlocks = new DeadlockDetector(this.board, this.boxCells.length);
+        this.lostSince = NOT_LOST;
+        this.completed = this.allBoxesAreStored();
+        this.wasLost = this.isLost();
+        this.view = messageToUI -> {
+        }; // no view until one is registered
         this.movesList = new ArrayList<>();
-        this.undoGameStates = new ArrayList<>();
-        this.redoGameStates = new ArrayList<>();
-        this.redoCounter = 0;
-
-        this.makeGameState(level.keeperPosition());
+        this.journal = new byte[64];
+        this.journalSize = 0;
+        this.journalEnd = 0;
+        this.checkpoints = new ArrayList<>();
+        this.checkpoints.add(this.snapshot());
     }
 
-    private Set<Box> createSetOfBoxes(Set<Position> boxesPositions) {
-        Set<Box> set = new HashSet<>();
+    /**
+     * Fills the box occupancy index
+     * this.boxCells holds the cell of each box and this.boxAt holds, for each cell, the box number + 1 (0 if empty)
+     *
+     * @param boxesPositions initial positions of the boxes
+     */
+    private void placeBoxes(Set<Position> boxesPositions) {
+        if (boxesPositions.size() > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many boxes: " + boxesPositions.size());
+        }
+        int box = 0;
         for (Position pos : boxesPositions) {
-            set.add(new Box(pos));
+            int cell = this.board.cell(pos);
+            this.boxCells[box] = cell;
+            this.boxAt[cell] = (short) (box + 1);
+            this.boxesHash ^= this.board.boxKey(cell);
+            if (this.board.isEnd(cell)) this.boxesOnGoal++;
+            if (this.board.isDeadSquare(cell)) this.boxesOnDeadSquares++;
+            box++;
         }
-        return set;
     }
 
     public Keeper keeper() {
         return this.keeper;
     }
 
+    /**
+     * @return current keeper position
+     */
+    public Position getKeeperPosition() {
+        return this.keeper.getPosition();
+    }
+
+    /**
+     * @return current positions of all boxes
+     */
+    public List<Position> getBoxesPositions() {
+        List<Position> positions = new ArrayList<>(this.boxCells.length);
+        for (int cell : this.boxCells) {
+            positions.add(this.board.position(cell));
+        }
+        return positions;
+    }
+
 
     /**
      * Register a view (an observer) and updates it
@@ -74,6 +121,8 @@ public class SokobanGameModel {
     }
 
     /**
+     * Safe for any position, moves use the board wall border instead
+     *
      * @return the position content or WALL it outside the board
      */
     public PositionContent getPosContent(Position pos) {
@@ -103,16 +152,38 @@ public class SokobanGameModel {
 
     /**
      * Game ends successfully
+     * Uses a counter of boxes in end positions kept up to date by every push
      *
      * @return true if all boxes are in the end position (games ends),
      * false otherwise
      */
     public boolean allBoxesAreStored() {
-        for (Box box : this.boxes) {
-            if (this.getPosContent(box.getPosition()) != PositionContent.END)
-                return false;
-        }
-        return true;
+        return this.boxesOnGoal == this.boxCells.length;
+    }
+
+    /**
+     * A lost position can never be solved, the player must undo or restart
+     *
+     * @return true if a box is in a dead square, or a push of the history up to this move left boxes
+     * frozen or closed in a corral
+     */
+    public boolean isLost() {
+        return this.boxesOnDeadSquares > 0 || this.journalSize >= this.lostSince;
+    }
+
+    /**
+     * @param pos board position
+     * @return true if a box in pos can never be stored
+     */
+    public boolean isDeadSquare(Position pos) {
+        return !this.isOutsideBoard(pos) && this.board.isDeadSquare(pos);
+    }
+
+    /**
+     * @return number of boxes in end positions
+     */
+    public int getBoxesOnGoal() {
+        return this.boxesOnGoal;
     }
 
     /**
@@ -122,30 +193,260 @@ public class SokobanGameModel {
      * @return true if moved, false otherwise
      */
     public boolean moveKeeper(Direction dir) {
-        this.redoCounter = 0;
-        return this.moveKeeperTo(this.keeper.getPosition().move(dir));
+        final int keeperCell = this.board.cell(this.keeper.getPosition());
+        return this.moveKeeperTo(this.board.position(keeperCell + this.board.offset(dir)));
     }
 
     /**
      * Tries to move keeper to position newPosition
+     * A successful move is added to the undo journal and clears the moves that could be redone
      *
-     * @param newPosition target position
+     * @param newPosition target position, next to the keeper
      * @return true if moved, false otherwise
      */
     public boolean moveKeeperTo(Position newPosition) {
         Position initialPos = this.keeper.getPosition();
+        final Direction dir = this.directionBetween(this.board.cell(initialPos), this.board.cell(newPosition));
         List<Position> positions = this.moveTo(initialPos, newPosition);
 
         if (positions.size() > 0) {
-            String messageToGUI = "move from " + positions.get(1) + " to " + positions.get(0);
-            this.movesList.add(positions.get(0));
-            this.makeGameState(positions.get(0));
-            this.view.update(new MessageToUI(positions, messageToGUI));
+            this.record(dir, positions.size() == 3);
+            this.publishMove(positions);
             return true;
         }
         return false;
     }
 
+    /**
+     * Direction of a single step between two cells
+     *
+     * @param from initial cell
+     * @param to   cell next to from
+     * @return direction from one cell to the other
+     */
+    private Direction directionBetween(int from, int to) {
+        for (Direction dir : DIRECTIONS) {
+            if (from + this.board.offset(dir) == to) return dir;
+        }
+        throw new IllegalArgumentException("Position " + this.board.position(to) + " is not next to the keeper");
+    }
+
+    /**
+     * Adds one move to the undo journal: the direction plus a flag if a box was pushed
+     * A new push is checked for deadlocks here, redone and replayed moves are already covered by lostSince
+     *
+     * @param dir    direction of the move
+     * @param pushed true if the move pushed a box
+     */
+    private void record(Direction dir, boolean pushed) {
+        // checkpoints after this move belong to the moves that can no longer be redone
+        final int validCheckpoints = this.journalSize / CHECKPOINT_INTERVAL + 1;
+        while (this.checkpoints.size() > validCheckpoints) {
+            this.checkpoints.remove(this.checkpoints.size() - 1);
+        }
+        if (this.lostSince > this.journalSize) {
+            // a deadlock found after this move belongs to the moves that can no longer be redone
+            this.lostSince = NOT_LOST;
+        }
+        if (pushed) {
+            final int keeperCell = this.board.cell(this.keeper.getPosition());
+            this.checkDeadlock(keeperCell + this.board.offset(dir), keeperCell);
+        }
+        if (this.journalSize == this.journal.length) {
+            this.journal = Arrays.copyOf(this.journal, this.journal.length * 2);
+        }
+        this.journal[this.journalSize++] = (byte) (dir.ordinal() | (pushed ? PUSHED : 0));
+        this.journalEnd = this.journalSize;
+        if (this.journalSize % CHECKPOINT_INTERVAL == 0) {
+            this.checkpoints.add(this.snapshot());
+        }
+    }
+
+    /**
+     * Full copy of the state, used as checkpoint
+     *
+     * @return keeper cell followed by the cell of each box
+     */
+    private int[] snapshot() {
+        int[] state = new int[this.boxCells.length + 1];
+        state[0] = this.board.cell(this.keeper.getPosition());
+        System.arraycopy(this.boxCells, 0, state, 1, this.boxCells.length);
+        return state;
+    }
+
+    /**
+     * Puts the keeper and the boxes back in the state of a snapshot
+     *
+     * @param state keeper cell followed by the cell of each box
+     */
+    private void restore(int[] state) {
+        for (int cell : this.boxCells) {
+            this.boxAt[cell] = 0;
+        }
+        this.boxesHash = 0;
+        this.boxesOnGoal = 0;
+        this.boxesOnDeadSquares = 0;
+        for (int box = 0; box < this.boxCells.length; box++) {
+            final int cell = state[box + 1];
+            this.boxCells[box] = cell;
+            this.boxAt[cell] = (short) (box + 1);
+            this.boxesHash ^= this.board.boxKey(cell);
+            if (this.board.isEnd(cell)) this.boxesOnGoal++;
+            if (this.board.isDeadSquare(cell)) this.boxesOnDeadSquares++;
+        }
+        this.keeper.moveTo(this.board.position(state[0]));
+    }
+
+    /**
+     * Counts the move and tells the view the positions that changed
+     *
+     * @param positions changed positions, new keeper position first and previous keeper position second
+     */
+    private void publishMove(List<Position> positions) {
+        String messageToGUI = "move from " + positions.get(1) + " to " + positions.get(0);
+        this.movesList.add(positions.get(0));
+        this.view.update(new MessageToUI(positions, messageToGUI));
+        this.notifyEvents();
+    }
+
+    /**
+     * @return true if there is a move to undo
+     */
+    public boolean canUndo() {
+        return this.journalSize > 0;
+    }
+
+    /**
+     * @return true if there is an undone move to redo
+     */
+    public boolean canRedo() {
+        return this.journalSize < this.journalEnd;
+    }
+
+    /**
+     * Undoes the last move: the keeper steps back and pulls the box if that move pushed one
+     * The undo counts as a move, like any other keeper movement
+     *
+     * @return true if a move was undone
+     */
+    public boolean undo() {
+        if (!this.canUndo()) return false;
+        final byte entry = this.journal[--this.journalSize];
+        final Direction dir = DIRECTIONS[entry & 3];
+        final int keeperCell = this.board.cell(this.keeper.getPosition());
+        final int prevKeeperCell = keeperCell - this.board.offset(dir);
+
+        this.keeper.moveTo(this.board.position(prevKeeperCell));
+        List<Position> positions;
+        if ((entry & PUSHED) != 0) {
+            final int boxCell = keeperCell + this.board.offset(dir);
+            this.moveBox(boxCell, keeperCell);
+            positions = List.of(this.board.position(prevKeeperCell),
+                    this.board.position(keeperCell),
+                    this.board.position(boxCell));
+        } else {
+            positions = List.of(this.board.position(prevKeeperCell), this.board.position(keeperCell));
+        }
+        this.publishMove(positions);
+        return true;
+    }
+
+    /**
+     * @return number of moves played until the current state (undone moves excluded)
+     */
+    public int getMoveIndex() {
+        return this.journalSize;
+    }
+
+    /**
+     * @return number of moves in the history, undone moves included
+     */
+    public int getHistorySize() {
+        return this.journalEnd;
+    }
+
+    /**
+     * Jumps to the state after moveIndex moves of the history
+     * Restores the nearest checkpoint and replays the journal silently,
+     * then tells the view all changed positions in a single update
+     * Seeking does not count as moves
+     *
+     * @param moveIndex number of moves, between 0 and getHistorySize()
+     */
+    public void seek(int moveIndex) {
+        if (moveIndex < 0 || moveIndex > this.journalEnd) {
+            throw new IllegalArgumentException("No move " + moveIndex + " in a history of " + this.journalEnd);
+        }
+        final int[] before = this.snapshot();
+
+        // replay from the current state when it is closer than the checkpoint
+        final int checkpoint = moveIndex / CHECKPOINT_INTERVAL;
+        if (moveIndex < this.journalSize || checkpoint * CHECKPOINT_INTERVAL > this.journalSize) {
+            this.restore(this.checkpoints.get(checkpoint));
+            this.journalSize = checkpoint * CHECKPOINT_INTERVAL;
+        }
+        while (this.journalSize < moveIndex) {
+            final int keeperCell = this.board.cell(this.keeper.getPosition());
+            final Direction dir = DIRECTIONS[this.journal[this.journalSize] & 3];
+            this.moveTo(this.keeper.getPosition(), this.board.position(keeperCell + this.board.offset(dir)));
+            this.journalSize++;
+        }
+
+        this.view.update(new MessageToUI(this.changedSince(before), "seek to move " + moveIndex));
+        this.notifyEvents();
+    }
+
+    /**
+     * Puts the level back in its initial state and clears the history, like a new game of the same level
+     * Tells the view only the positions that changed, in a single update
+     */
+    public void reset() {
+        final int[] before = this.snapshot();
+        this.restore(this.checkpoints.get(0));
+        this.checkpoints.subList(1, this.checkpoints.size()).clear();
+        this.journalSize = 0;
+        this.journalEnd = 0;
+        this.movesList.clear();
+        this.lostSince = NOT_LOST;
+        this.completed = this.allBoxesAreStored();
+        this.wasLost = this.isLost();
+        this.view.update(new MessageToUI(this.changedSince(before), "reset"));
+    }
+
+    /**
+     * @param before snapshot of an earlier state
+     * @return positions of the keeper and the boxes that differ from before, old and new
+     */
+    private List<Position> changedSince(int[] before) {
+        // box numbers never change, so each box that moved changes its old and its new position
+        Set<Position> changed = new LinkedHashSet<>();
+        changed.add(this.keeper.getPosition());
+        changed.add(this.board.position(before[0]));
+        for (int box = 0; box < this.boxCells.length; box++) {
+            if (before[box + 1] != this.boxCells[box]) {
+                changed.add(this.board.position(before[box + 1]));
+                changed.add(this.board.position(this.boxCells[box]));
+            }
+        }
+        return new ArrayList<>(changed);
+    }
+
+    /**
+     * Redoes the last undone move
+     *
+     * @return true if a move was redone
+     */
+    public boolean redo() {
+        if (!this.canRedo()) return false;
+        final Direction dir = DIRECTIONS[this.journal[this.journalSize] & 3];
+        final int keeperCell = this.board.cell(this.keeper.getPosition());
+        List<Position> positions = this.moveTo(this.keeper.getPosition(), this.board.position(keeperCell + this.board.offset(dir)));
+        assert (!positions.isEmpty());
+        this.journalSize++;
+        this.publishMove(positions);
+        return true;
+    }
+
     /**
      * Move from one position to the other and return the changed positions that need to be updated
      *
@@ -154,24 +455,28 @@ public class SokobanGameModel {
      * @return positions that where changed
      */
     private List<Position> moveTo(Position keeperPosition, Position newKeeperPos) {
-        final Position possibleFinalBoxPos = Position.boxNextPositionAfterPush(keeperPosition, newKeeperPos);
-        final boolean boxInNewKeeperPos = this.boxInPos(newKeeperPos);
-        final boolean boxInPossibleFinalBoxPos = this.boxInPos(possibleFinalBoxPos);
-        if (!boxInNewKeeperPos
-                &&
-                !this.getPosContent(newKeeperPos).equals(PositionContent.WALL)) {
+        // the board has a wall border, so positions next to the board need no bounds check
+        final int keeperCell = this.board.cell(keeperPosition);
+        final int newKeeperCell = this.board.cell(newKeeperPos);
+        if (this.board.isWall(newKeeperCell)) {
+            // no movement
+            return List.of();
+        }
+        if (this.boxAt[newKeeperCell] == 0) {
             // move to empty position
-            this.keeper.moveTo(newKeeperPos);
-            return List.of(newKeeperPos, keeperPosition);
-        } else if (boxInNewKeeperPos
-                &&
-                !this.getPosContent(possibleFinalBoxPos).equals(PositionContent.WALL)
-                &&
-                !boxInPossibleFinalBoxPos) {
+            this.keeper.moveTo(this.board.position(newKeeperCell));
+            return List.of(this.board.position(newKeeperCell), this.board.position(keeperCell));
+        }
+        // the box is inside the board, so its next position is at most on the border
+        final int finalBoxCell = 2 * newKeeperCell - keeperCell;
+        assert (Math.abs(newKeeperCell - keeperCell) == 1 || Math.abs(newKeeperCell - keeperCell) == this.board.stride());
+        if (!this.board.isWall(finalBoxCell) && this.boxAt[finalBoxCell] == 0) {
             // move box
-            this.keeper.moveTo(newKeeperPos);
-            this.moveBoxAt(newKeeperPos, possibleFinalBoxPos);
-            return List.of(newKeeperPos, keeperPosition, possibleFinalBoxPos);
+            this.keeper.moveTo(this.board.position(newKeeperCell));
+            this.moveBox(newKeeperCell, finalBoxCell);
+            return List.of(this.board.position(newKeeperCell),
+                    this.board.position(keeperCell),
+                    this.board.position(finalBoxCell));
         }
         // no movement
         return List.of();
@@ -184,8 +489,69 @@ public class SokobanGameModel {
      * @param end   final box position
      */
     public void moveBoxAt(Position start, Position end) {
-        this.boxes.remove(new Box(start));
-        this.boxes.add(new Box(end));
+        this.moveBox(this.board.cell(start), this.board.cell(end));
+    }
+
+    /**
+     * Move box between cells, keeping this.boxCells and this.boxAt in sync
+     *
+     * @param start cell with the box
+     * @param end   empty cell
+     */
+    private void moveBox(int start, int end) {
+        final short box = this.boxAt[start];
+        assert (box != 0 && this.boxAt[end] == 0);
+        this.boxAt[start] = 0;
+        this.boxAt[end] = box;
+        this.boxCells[box - 1] = end;
+        this.boxesHash ^= this.board.boxKey(start) ^ this.board.boxKey(end);
+        if (this.board.isEnd(start)) this.boxesOnGoal--;
+        if (this.board.isEnd(end)) this.boxesOnGoal++;
+        if (this.board.isDeadSquare(start)) this.boxesOnDeadSquares--;
+        if (this.board.isDeadSquare(end)) this.boxesOnDeadSquares++;
+    }
+
+    /**
+     * Looks for a freeze or corral deadlock around a box that was just pushed
+     * Once lost, every later state of the same history is lost too, so only the first lost move is kept
+     * Called before the move enters the journal, so the move index after it is journalSize + 1
+     *
+     * @param boxCell    cell of the pushed box
+     * @param keeperCell cell of the keeper after the push
+     */
+    private void checkDeadlock(int boxCell, int keeperCell) {
+        final int moveIndex = this.journalSize + 1;
+        if (moveIndex < this.lostSince
+                && this.deadlocks.isDeadlockAfterPush(cell -> this.boxAt[cell] != 0, boxCell, keeperCell)) {
+            this.lostSince = moveIndex;
+        }
+    }
+
+    /**
+     * Tells the view that the level was completed, the first time in this game,
+     * or that the position was lost, when the last change made it so
+     * Undoing, redoing or seeking back to a completed state does not complete the level again
+     */
+    private void notifyEvents() {
+        if (!this.completed && this.allBoxesAreStored()) {
+            this.completed = true;
+            this.view.levelCompleted();
+        }
+        final boolean lost = this.isLost();
+        if (lost && !this.wasLost) {
+            this.view.positionLost();
+        }
+        this.wasLost = lost;
+    }
+
+    /**
+     * 64-bit Zobrist hash of the game state (keeper cell and set of box cells)
+     * The box part is updated on every push, so this is O(1)
+     *
+     * @return hash of the current state
+     */
+    public long stateHash() {
+        return this.boxesHash ^ this.board.keeperKey(this.board.cell(this.keeper.getPosition()));
     }
 
     /**
@@ -211,11 +577,11 @@ public class SokobanGameModel {
     /**
      * Test if the given position has a box
      *
-     * @param pos position to test
+     * @param pos position to test, inside the board or on its border
      * @return true if there is a box in pos
      */
     public boolean boxInPos(Position pos) {
-        return this.boxes.contains(new Box(pos));
+        return this.boxAt[this.board.cell(pos)] != 0;
     }
 
     /**
@@ -255,19 +621,21 @@ public class SokobanGameModel {
      * @return image type at position pos
      */
     public ImageType imageForPosition(Position pos) {
-        if (board.getPosContent(pos).equals(PositionContent.WALL))
+        final int cell = this.board.cell(pos);
+        PositionContent content = this.board.contentAt(cell);
+        if (content == PositionContent.WALL)
             return ImageType.WALL;
-        else if (board.getPosContent(pos).equals(PositionContent.FREE)) {
+        else if (content == PositionContent.FREE) {
             if (this.keeper.getPosition().equals(pos))
                 return ImageType.KEEPER;
-            else if (this.boxInPos(pos))
+            else if (this.boxAt[cell] != 0)
                 return ImageType.BOX;
             else
                 return ImageType.FREE;
-        } else if (board.getPosContent(pos).equals(PositionContent.END)) {
+        } else if (content == PositionContent.END) {
             if (this.keeper.getPosition().equals(pos))
                 return ImageType.KEEPER;
-            else if (this.boxInPos(pos))
+            else if (this.boxAt[cell] != 0)
                 return ImageType.BOXEND;
             else
                 return ImageType.END;
@@ -320,26 +688,24 @@ public class SokobanGameModel {
      * function that returns if exists the score file into a list of Strings
      *
      * @return A list of Strings whit which string being a line of the score file
+     * @throws UncheckedIOException if the score file could not be read
      */
     public List<String> getScoreFile() {
-        List<String> scoresList = new ArrayList<>();
         File file = new File(this.SCORE_FILE_PATH);
         try {
-            scoresList = Files.readAllLines(file.toPath());
+            return Files.readAllLines(file.toPath());
         } catch (IOException e) {
-            Alert alert = new Alert(Alert.AlertType.ERROR, "Could not load");
-            alert.show();
+            throw new UncheckedIOException(e);
         }
-        return scoresList;
     }
 
     /**
-     * function that writes the high scores in a text area
+     * function that writes the high scores as text, one score per line
      *
-     * @param textArea where the scores will be written
-     * @param level    the current level of the game
+     * @param level the current level of the game
+     * @return the high scores text
      */
-    public void writeHighScores(TextArea textArea, Level level) {
+    public String highScoresText(Level level) {
         List<String> scoreFile = this.getScoreFile();
         List<Score> scoreList = new ArrayList<>();
         List<Score> currentLevelScores = new ArrayList<>();
@@ -369,124 +735,15 @@ public class SokobanGameModel {
             topScores = currentLevelScores.subList(0, 3);
         }
 
-        //Writes in a textArea the high scores
-        textArea.appendText("High Scores: " + level.levelName() + "\n");
+        //Writes the high scores
+        StringBuilder text = new StringBuilder("High Scores: " + level.levelName() + "\n");
         for (Score topScore : topScores) {
-            textArea.appendText(topScore.toString());
+            text.append(topScore);
             if (currentScore.equals(topScore)) {
-                textArea.appendText("-> TOP");
+                text.append("-> TOP");
             }
-            textArea.appendText("\n");
+            text.append("\n");
         }
+        return text.toString();
     }
-
-    /**
-     * adds the current gameState to undoGameState and redoGameState
-     *
-     * @param keeperPos the current position of the keeper
-     */
-    public void makeGameState(Position keeperPos) {
-        List<Position> currentState = new ArrayList<>();
-        currentState.add(keeperPos);
-        for (Box box : boxes) {
-            currentState.add(box.getPosition());
-        }
-        this.undoGameStates.add(currentState);
-        this.redoGameStates.add(currentState);
-    }
-
-    public List<List<Position>> getUndoGameStates() {
-        return this.undoGameStates;
-    }
-
-    public void setUndoGameStates(List<List<Position>> undoGameStates) {
-        this.undoGameStates = undoGameStates;
-    }
-
-    public List<List<Position>> getRedoGameStates() {
-        return this.redoGameStates;
-    }
-
-    public void setRedoGameStates(List<List<Position>> redoGameStates) {
-        this.redoGameStates = redoGameStates;
-    }
-
-    public int getRedoCounter() {
-        return redoCounter;
-    }
-
-    /**
-     * increments redoCounter
-     */
-    public void incRedoCounter() {
-        this.redoCounter++;
-    }
-
-    /**
-     * decrements redo counter
-     */
-    public void decRedoCounter() {
-        this.redoCounter--;
-    }
-
-    /**
-     * version of moveBoxAt that updates the movement need for undo
-     *
-     * @param start initial box position
-     * @param end   final box position
-     */
-    public void moveBoxTo(Position start, Position end) {
-        List<Position> positions = new ArrayList<>();
-        positions.add(start);
-        positions.add(end);
-        String messageToGUI = "move box " + start + " to " + end;
-        this.boxes.remove(new Box(start));
-        this.boxes.add(new Box(end));
-        this.view.update(new MessageToUI(positions, messageToGUI));
-    }
-
-    /**
-     * reads the keys pressed by the player and moves the keeper
-     *
-     * @param pane the pane that extends the Sokoban view
-     */
-    public void setOnKeyPressedMovement(Pane pane) {
-        pane.setOnKeyPressed(event -> {
-            final Map<KeyCode, Direction> keyToDir = Map.of(KeyCode.UP, Direction.UP, KeyCode.DOWN, Direction.DOWN, KeyCode.LEFT, Direction.LEFT, KeyCode.RIGHT, Direction.RIGHT);
-            Direction direction = keyToDir.get(event.getCode());
-            if (direction != null && !this.moveKeeper(direction)) {
-                this.couldNotMove();
-            }
-        });
-    }
-
-    /**
-     * Signal that keeper could not move
-     */
-    private void couldNotMove() {
-        Toolkit.getDefaultToolkit().beep(); // did not move
-    }
-
-    /**
-     * function that gets the labels of a gridPane
-     *
-     * @param line line of label in board
-     * @param col  column of label in board
-     * @param pane GridPane where the labels are in
-     * @return the label at line, col
-     */
-    public javafx.scene.control.Label getLabel(int line, int col, GridPane pane) {
-        ObservableList<Node> children = pane.getChildren();
-        for (Node node : children) {
-            if (GridPane.getRowIndex(node) == line && GridPane.getColumnIndex(node) == col) {
-                assert (node.getClass() == javafx.scene.control.Label.class);
-                return (Label) node;
-            }
-        }
-        assert (false); // must not happen
-        return null;
-    }
-
 }
-
-
@@ -9,6 +9,19 @@ package pt.ipbeja.po2.sokoban2023.model;
  */
 public interface SokobanView {
     void update(MessageToUI messageToUI);
+
+    /**
+     * Called once per game, after the update, when a move stores the last box for the first time
+     * (again after reset, not after undo, redo or seek)
+     */
+    default void levelCompleted() {
+    }
+
+    /**
+     * Called once, after the update, when a move leaves the game in a position that can no longer be solved
+     */
+    default void positionLost() {
+    }
 }
 
 
@@ -0,0 +1,155 @@
+package pt.ipbeja.po2.sokoban2023.solver;
+
+import pt.ipbeja.po2.sokoban2023.model.BoardModel;
+import pt.ipbeja.po2.sokoban2023.model.Level;
+
+import java.util.PriorityQueue;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * A* search over a state space
+ * With an admissible heuristic the solution has the fewest steps (keeper moves in a MoveSpace,
+ * pushes in a PushSpace)
+ * The best cost of each visited state is kept in a TranspositionTable with a fixed byte budget
+ *
+ * @author Diogo Patusca 23925, João Costa 22890
+ * @version 2023/06/11
+ */
+public class AStarSolver implements Solver {
+    public static final long DEFAULT_MAX_NODES = 5_000_000;
+    public static final long DEFAULT_TABLE_BYTES = 256L << 20;
+    private final BiFunction<BoardModel, Level, StateSpace> spaceFactory;
+    private final Function<BoardModel, Heuristic> heuristicFactory;
+    private final long maxNodes;
+    private final long tableBytes;
+    private final EvictionPolicy evictionPolicy;
+
+    /**
+     * Solver with the MatchingLowerBound heuristic
+     */
+    public AStarSolver() {
+        this(MatchingLowerBound::new, DEFAULT_MAX_NODES);
+    }
+
+    /**
+     * @param heuristicFactory creates the heuristic for the board of each level
+     * @param maxNodes         the search gives up after expanding this many nodes
+     */
+    public AStarSolver(Function<BoardModel, Heuristic> heuristicFactory, long maxNodes) {
+        this(heuristicFactory, maxNodes, DEFAULT_TABLE_BYTES, EvictionPolicy.REPLACE_DEEPEST);
+    }
+
+    /**
+     * @param heuristicFactory creates the heuristic for the board of each level
+     * @param maxNodes         the search gives up after expanding this many nodes
+     * @param tableBytes       byte budget of the table of visited states
+     * @param evictionPolicy   what the table of visited states does when it is full
+     */
+    public AStarSolver(Function<BoardModel, Heuristic> heuristicFactory, long maxNodes,
+                       long tableBytes, EvictionPolicy evictionPolicy) {
+        this(MoveSpace::new, heuristicFactory, maxNodes, tableBytes, evictionPolicy);
+    }
+
+    /**
+     * @param spaceFactory     creates the state space of each level
+     * @param heuristicFactory creates the heuristic for the board of each level
+     * @param maxNodes         the search gives up after expanding this many nodes
+     * @param tableBytes       byte budget of the table of visited states
+     * @param evictionPolicy   what the table of visited states does when it is full
+     */
+    public AStarSolver(BiFunction<BoardModel, Level, StateSpace> spaceFactory,
+                       Function<BoardModel, Heuristic> heuristicFactory, long maxNodes,
+                       long tableBytes, EvictionPolicy evictionPolicy) {
+        this.spaceFactory = spaceFactory;
+        this.heuristicFactory = heuristicFactory;
+        this.maxNodes = maxNodes;
+        this.tableBytes = tableBytes;
+        this.evictionPolicy = evictionPolicy;
+    }
+
+    @Override
+    public SolverResult solve(Level level) {
+        BoardModel board = new BoardModel(level.boardContent());
+        return this.solve(this.spaceFactory.apply(board, level), this.heuristicFactory.apply(board));
+    }
+
+    /**
+     * Solver over a PushSpace: far fewer states, the solution has the fewest pushes
+     * (not always the fewest moves)
+     *
+     * @return the solver
+     */
+    public static AStarSolver pushSolver() {
+        return new AStarSolver(PushSpace::new, MatchingLowerBound::new, DEFAULT_MAX_NODES,
+                DEFAULT_TABLE_BYTES, EvictionPolicy.REPLACE_DEEPEST);
+    }
+
+    /**
+     * Solver over a PushSpace with tunnel and goal room macros: fewer states again,
+     * but the solution may have more than the fewest pushes
+     *
+     * @return the solver
+     */
+    public static AStarSolver macroSolver() {
+        return new AStarSolver((board, level) -> new PushSpace(board, level, true), MatchingLowerBound::new,
+                DEFAULT_MAX_NODES, DEFAULT_TABLE_BYTES, EvictionPolicy.REPLACE_DEEPEST);
+    }
+
+    /**
+     * Search node: a state and how it was reached
+     */
+    private record Node(SearchState state, Node parent, int step, int g, int f) {
+    }
+
+    /**
+     * @param space     state space to search
+     * @param heuristic lower bound for the states of space
+     * @return the solver result
+     */
+    public SolverResult solve(StateSpace space, Heuristic heuristic) {
+        SearchStats stats = new SearchStats();
+        SearchState start = space.initial();
+        // lowest f first, deepest first among equal f
+        PriorityQueue<Node> open = new PriorityQueue<>((a, b) ->
+                a.f() != b.f() ? Integer.compare(a.f(), b.f()) : Integer.compare(b.g(), a.g()));
+        TranspositionTable bestG = new TranspositionTable(space.board(), this.tableBytes, this.evictionPolicy);
+
+        int h = heuristic.estimate(start);
+        if (h != Heuristic.UNSOLVABLE) {
+            open.add(new Node(start, null, -1, 0, h));
+            bestG.put(start, 0);
+        }
+        while (!open.isEmpty()) {
+            Node node = open.poll();
+            final int best = bestG.get(node.state());
+            if (best != TranspositionTable.MISSING && best < node.g()) continue; // reached again with a lower cost
+            if (space.isGoal(node.state())) {
+                return stats.result(space, space.toMoves(steps(node)));
+            }
+            if (stats.expanded() > this.maxNodes) break;
+            space.successors(node.state(), (next, step) -> {
+                int g = node.g() + 1;
+                int known = bestG.get(next);
+                if (known != TranspositionTable.MISSING && known <= g) return;
+                int estimate = heuristic.estimate(next, node.state());
+                if (estimate == Heuristic.UNSOLVABLE) return;
+                bestG.put(next, g);
+                open.add(new Node(next, node, step, g, g + estimate));
+            });
+        }
+        return stats.result(space, null);
+    }
+
+    /**
+     * @param node last node of a path
+     * @return steps from the initial state to node
+     */
+    private static int[] steps(Node node) {
+        int[] steps = new int[node.g()];
+        for (Node n = node; n.parent() != null; n = n.parent()) {
+            steps[n.g() - 1] = n.step();
+        }
+        return steps;
+    }
+}
@@ -0,0 +1,34 @@
+package pt.ipbeja.po2.sokoban2023.solver;
+
+import pt.ipbeja.po2.sokoban2023.model.Position;
+
+import java.util.List;
+
+/**
+ * Result of a BidirectionalSolver run, with the details of each search direction
+ *
+ * @param result         the solver result; nodes are the sum of both directions
+ * @param meetKeeper     keeper area of the state where the searches met, as its lowest position; null if not solved
+ * @param meetBoxes      box positions of the state where the searches met; empty if not solved
+ * @param forwardPushes  pushes from the level to the meet state
+ * @param backwardPulls  pulls from a solved state back to the meet state
+ * @param forwardNodes   states expanded by the forward (push) search
+ * @param backwardNodes  states expanded by the backward (pull) search
+ * @param forwardNanos   time of the forward search thread
+ * @param backwardNanos  time of the backward search thread
+ * @author Diogo Patusca 23925, João Costa 22890
+ * @version 2023/06/11
+ */
+public record BidirectionalResult(SolverResult result, Position meetKeeper, List<Position> meetBoxes,
+                                  int forwardPushes, int backwardPulls,
+                                  long forwardNodes, long backwardNodes,
+                                  long forwardNanos, long backwardNanos) {
+
+    @Override
+    public String toString() {
+        return String.format("%s meet=%s boxes=%s forward=%d pushes/%d nodes/%.1fms backward=%d pulls/%d nodes/%.1fms",
+                this.result, this.meetKeeper, this.meetBoxes,
+                this.forwardPushes, this.forwardNodes, this.forwardNanos / 1e6,
+                this.backwardPulls, this.backwardNodes, this.backwardNanos / 1e6);
+    }
+}
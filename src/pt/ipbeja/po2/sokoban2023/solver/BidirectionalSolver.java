@@ -0,0 +1,200 @@
+package pt.ipbeja.po2.sokoban2023.solver;
+
+import pt.ipbeja.po2.sokoban2023.model.BoardModel;
+import pt.ipbeja.po2.sokoban2023.model.Level;
+import pt.ipbeja.po2.sokoban2023.model.Position;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+
+/**
+ * Two breadth-first searches on two threads that meet in the middle:
+ * a forward search of pushes from the level (a PushSpace) and a backward search of pulls
+ * from every solved state (boxes in end positions, keeper in any free area)
+ * Both keep the keeper area normalized like PushSpace, so a state seen by both searches joins the two halves;
+ * each search checks the states of the other one in a shared concurrent table
+ * The solution is valid but may have more pushes than the fewest possible
+ * With too many choices of end positions the backward search starts from some of the solved states only;
+ * then running out of backward states proves nothing and the forward search goes on alone, up to a solved state
+ *
+ * @author Diogo Patusca 23925, João Costa 22890
+ * @version 2023/06/11
+ * Based on https://en.wikipedia.org/wiki/Bidirectional_search
+ */
+public class BidirectionalSolver implements Solver {
+    private static final int MAX_GOAL_STATES = 10_000;
+    private final long maxNodes;
+
+    public BidirectionalSolver() {
+        this(AStarSolver.DEFAULT_MAX_NODES);
+    }
+
+    /**
+     * @param maxNodes the search gives up after both directions expanded this many nodes together
+     */
+    public BidirectionalSolver(long maxNodes) {
+        this.maxNodes = maxNodes;
+    }
+
+    @Override
+    public SolverResult solve(Level level) {
+        return this.solveWithReport(level).result();
+    }
+
+    /**
+     * Search node; step is a PushSpace push code, for backward nodes it is the push that undoes the pull
+     */
+    private record Node(SearchState state, Node parent, int step, int depth) {
+    }
+
+    /**
+     * One direction of the search, run on its own thread
+     */
+    private final class Frontier implements Runnable {
+        private final ConcurrentHashMap<SearchState, Node> seen;
+        private final Expander expander;
+        private final SearchStats stats;
+        private final AtomicReference<SearchState> meet;
+        private final AtomicBoolean stop;
+        /**
+         * True if the seeds are every start of this direction, so running out of states proves there is no solution
+         */
+        private final boolean complete;
+        /**
+         * States that end the search without meeting the other direction
+         */
+        private final Predicate<SearchState> goal;
+        private Frontier other;
+        private List<Node> layer;
+        private long nodes;
+        private long nanos;
+
+        Frontier(List<SearchState> seeds, boolean complete, Predicate<SearchState> goal, Expander expander,
+                 SearchStats stats, AtomicReference<SearchState> meet, AtomicBoolean stop) {
+            this.seen = new ConcurrentHashMap<>();
+            this.expander = expander;
+            this.stats = stats;
+            this.meet = meet;
+            this.stop = stop;
+            this.complete = complete;
+            this.goal = goal;
+            this.layer = new ArrayList<>();
+            for (SearchState seed : seeds) {
+                Node node = new Node(seed, null, -1, 0);
+                if (this.seen.putIfAbsent(seed, node) == null) this.layer.add(node);
+            }
+        }
+
+        @Override
+        public void run() {
+            final long start = System.nanoTime();
+            try {
+                while (!this.stop.get() && !this.layer.isEmpty()) {
+                    List<Node> next = new ArrayList<>();
+                    for (Node node : this.layer) {
+                        if (this.stop.get()) break;
+                        this.nodes++;
+                        if (this.stats.expanded() > BidirectionalSolver.this.maxNodes) {
+                            this.stop.set(true);
+                            break;
+                        }
+                        this.expander.expand(node.state(), (state, step) -> {
+                            Node child = new Node(state, node, step, node.depth() + 1);
+                            if (this.seen.putIfAbsent(state, child) != null) return;
+                            next.add(child);
+                            if ((this.other.seen.containsKey(state) || this.goal.test(state))
+                                    && this.meet.compareAndSet(null, state)) {
+                                this.stop.set(true);
+                            }
+                        });
+                    }
+                    this.layer = next;
+                }
+                // every state of this direction was seen without meeting the other one: no solution
+                if (this.layer.isEmpty() && this.complete) this.stop.set(true);
+            } finally {
+                this.nanos = System.nanoTime() - start;
+            }
+        }
+    }
+
+    /**
+     * Successors of one search direction
+     */
+    private interface Expander {
+        void expand(SearchState state, StateSpace.SuccessorSink sink);
+    }
+
+    /**
+     * @param level the level
+     * @return the result with the meet state and the work of each direction
+     */
+    public BidirectionalResult solveWithReport(Level level) {
+        BoardModel board = new BoardModel(level.boardContent());
+        PushSpace space = new PushSpace(board, level);
+        SearchStats stats = new SearchStats();
+        AtomicReference<SearchState> meet = new AtomicReference<>();
+        AtomicBoolean stop = new AtomicBoolean();
+
+        final int nBoxes = level.boxesPositions().size();
+        Frontier forward = new Frontier(List.of(space.initial()), true, space::isGoal, space::successors,
+                stats, meet, stop);
+        Frontier backward = new Frontier(KeeperAreas.solvedStates(board, nBoxes, MAX_GOAL_STATES),
+                KeeperAreas.hasAllSolvedStates(board, nBoxes, MAX_GOAL_STATES), state -> false,
+                (state, sink) -> KeeperAreas.pulls(board, state, sink), stats, meet, stop);
+        forward.other = backward;
+        backward.other = forward;
+        if (backward.seen.containsKey(space.initial()) || space.isGoal(space.initial())) meet.set(space.initial());
+
+        if (meet.get() == null) {
+            ExecutorService threads = Executors.newFixedThreadPool(2);
+            try {
+                List<Future<?>> runs = List.of(threads.submit(forward), threads.submit(backward));
+                for (Future<?> run : runs) {
+                    run.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Search interrupted", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Search failed", e.getCause());
+            } finally {
+                threads.shutdown();
+            }
+        }
+
+        SearchState meetState = meet.get();
+        if (meetState == null) {
+            return new BidirectionalResult(stats.result(space, null), null, List.of(), -1, -1,
+                    forward.nodes, backward.nodes, forward.nanos, backward.nanos);
+        }
+        Node forwardNode = forward.seen.get(meetState);
+        // a solved state the backward search did not start from is a backward node of its own
+        Node backwardNode = backward.seen.getOrDefault(meetState, new Node(meetState, null, -1, 0));
+        // forward steps from the start, then the backward steps in reverse order up to the solved state
+        int[] steps = new int[forwardNode.depth() + backwardNode.depth()];
+        for (Node n = forwardNode; n.parent() != null; n = n.parent()) {
+            steps[n.depth() - 1] = n.step();
+        }
+        int i = forwardNode.depth();
+        for (Node n = backwardNode; n.parent() != null; n = n.parent()) {
+            steps[i++] = n.step();
+        }
+
+        List<Position> meetBoxes = new ArrayList<>();
+        for (int box = 0; box < meetState.nBoxes(); box++) {
+            meetBoxes.add(board.position(meetState.box(box)));
+        }
+        return new BidirectionalResult(stats.result(space, space.toMoves(steps)),
+                board.position(meetState.keeper()), meetBoxes, forwardNode.depth(), backwardNode.depth(),
+                forward.nodes, backward.nodes, forward.nanos, backward.nanos);
+    }
+}
@@ -0,0 +1,23 @@
+package pt.ipbeja.po2.sokoban2023.solver;
+
+/**
+ * What a full TranspositionTable does with a new state when all slots it may use are taken
+ *
+ * @author Diogo Patusca 23925, João Costa 22890
+ * @version 2023/06/11
+ */
+public enum EvictionPolicy {
+    /**
+     * The new state is not stored, the search may expand it again later
+     */
+    KEEP_EXISTING,
+    /**
+     * The state with the highest value (the deepest one) is replaced, if it is not lower than the new value;
+     * states near the root prune more of the search
+     */
+    REPLACE_DEEPEST,
+    /**
+     * The state in the first slot of the new state is always replaced
+     */
+    ALWAYS_REPLACE
+}
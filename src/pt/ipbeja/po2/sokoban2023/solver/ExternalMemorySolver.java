@@ -0,0 +1,490 @@
+package pt.ipbeja.po2.sokoban2023.solver;
+
+import pt.ipbeja.po2.sokoban2023.model.BoardModel;
+import pt.ipbeja.po2.sokoban2023.model.Level;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Breadth-first search that keeps its layers on disk, for levels with more states than fit in the heap
+ * Each layer is a file of fixed width records (keeper cell and StateCodec box bitset), sorted and without
+ * repeated states; files are read through memory maps, outside the heap
+ * Duplicate detection is delayed: the successors of a layer are collected in sorted runs of limited size,
+ * then the runs are merged and every state already in an earlier layer is dropped
+ * The path is rebuilt by scanning the earlier layers for a parent of each state
+ * Only the run buffer is in the heap, so the heap use stays near the configured limit
+ *
+ * @author Diogo Patusca 23925, João Costa 22890
+ * @version 2023/06/11
+ * Based on https://en.wikipedia.org/wiki/External_memory_algorithm
+ */
+public class ExternalMemorySolver implements Solver {
+    public static final long DEFAULT_HEAP_LIMIT = 64L << 20;
+    private static final int MAPPED_CHUNK_BYTES = 1 << 26;
+    private static final int WRITE_BUFFER_BYTES = 1 << 16;
+    private final Path workDir;
+    private final long heapLimitBytes;
+    private final long maxNodes;
+
+    /**
+     * Solver with its layers in the temporary directory
+     */
+    public ExternalMemorySolver() {
+        this(Path.of(System.getProperty("java.io.tmpdir")), DEFAULT_HEAP_LIMIT, AStarSolver.DEFAULT_MAX_NODES);
+    }
+
+    /**
+     * @param workDir        directory for the layer files, on a local disk
+     * @param heapLimitBytes heap for the sorted runs
+     * @param maxNodes       the search gives up after expanding this many nodes
+     */
+    public ExternalMemorySolver(Path workDir, long heapLimitBytes, long maxNodes) {
+        this.workDir = workDir;
+        this.heapLimitBytes = heapLimitBytes;
+        this.maxNodes = maxNodes;
+    }
+
+    @Override
+    public SolverResult solve(Level level) {
+        return this.solve(new MoveSpace(new BoardModel(level.boardContent()), level));
+    }
+
+    /**
+     * Layer files that cannot be deleted now (memory mapped files on some systems) never hide the result:
+     * they are deleted when the program exits, and a failed search gets the cleanup failure as suppressed
+     *
+     * @param space state space to search
+     * @return the solver result
+     * @throws UncheckedIOException if a layer file could not be written or read
+     */
+    public SolverResult solve(StateSpace space) {
+        final Path dir;
+        try {
+            dir = Files.createTempDirectory(this.workDir, "sokoban-layers");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        SolverResult result;
+        try {
+            result = this.search(space, dir);
+        } catch (IOException e) {
+            throw cleanUpAfter(dir, new UncheckedIOException(e));
+        } catch (RuntimeException e) {
+            throw cleanUpAfter(dir, e);
+        } catch (Error e) {
+            throw cleanUpAfter(dir, e);
+        }
+        deleteAll(dir); // what is left is deleted on exit
+        return result;
+    }
+
+    /**
+     * Deletes the layers of a failed search
+     *
+     * @param dir     directory of the layers
+     * @param failure exception of the search, any cleanup failure is added to it as suppressed
+     * @return failure
+     */
+    private static <T extends Throwable> T cleanUpAfter(Path dir, T failure) {
+        IOException cleanup = deleteAll(dir);
+        if (cleanup != null) failure.addSuppressed(cleanup);
+        return failure;
+    }
+
+    private SolverResult search(StateSpace space, Path dir) throws IOException {
+        SearchStats stats = new SearchStats();
+        BoardModel board = space.board();
+        SearchState start = space.initial();
+        StateCodec codec = new StateCodec(board);
+        final int width = 1 + codec.words();
+        if (space.isGoal(start)) return stats.result(space, space.toMoves(new int[0]));
+
+        long[] record = new long[width];
+        if (!encode(codec, start, record, 0)) return stats.result(space, null);
+        List<Path> layers = new ArrayList<>();
+        layers.add(dir.resolve("layer-0.bin"));
+        try (RecordWriter writer = new RecordWriter(layers.get(0), width)) {
+            writer.write(record, 0);
+        }
+
+        final int runRecords = (int) Math.max(1, Math.min(this.heapLimitBytes / (8L * width), Integer.MAX_VALUE / width));
+        Runs runs = new Runs(dir, codec, width, runRecords);
+        while (true) {
+            final int depth = layers.size() - 1;
+            try (RecordReader reader = new RecordReader(layers.get(depth), width)) {
+                while (reader.advance()) {
+                    if (stats.expanded() > this.maxNodes) return stats.result(space, null);
+                    SearchState state = decode(codec, board, start.nBoxes(), reader.head());
+                    space.successors(state, (next, step) -> {
+                        if (runs.goalStep < 0 && space.isGoal(next)) {
+                            runs.goalParent = state;
+                            runs.goalStep = step;
+                        }
+                        runs.add(next);
+                    });
+                    if (runs.goalStep >= 0) {
+                        List<Integer> steps = this.pathTo(space, codec, layers, depth, runs.goalParent);
+                        steps.add(runs.goalStep);
+                        return stats.result(space, space.toMoves(steps.stream().mapToInt(i -> i).toArray()));
+                    }
+                }
+            }
+            runs.flush();
+            stats.sampleMemory();
+            Path next = dir.resolve("layer-" + (depth + 1) + ".bin");
+            final long written = mergeNewStates(runs.files, layers, next, width);
+            for (Path run : runs.files) {
+                Files.delete(run);
+            }
+            runs.files.clear();
+            if (written == 0) return stats.result(space, null); // every reachable state was seen
+            layers.add(next);
+        }
+    }
+
+    /**
+     * Successors of the current layer: a buffer in the heap that is sorted and written to a run file when full
+     * The buffer doubles up to its capacity, so small levels do not take the whole heap limit
+     */
+    private static final class Runs {
+        private static final int INITIAL_RECORDS = 1024;
+        private final Path dir;
+        private final StateCodec codec;
+        private final int width;
+        private final int capacity;
+        private long[] buffer;
+        private final List<Path> files;
+        private int size;
+        private SearchState goalParent;
+        private int goalStep;
+
+        Runs(Path dir, StateCodec codec, int width, int capacity) {
+            this.dir = dir;
+            this.codec = codec;
+            this.width = width;
+            this.capacity = capacity;
+            this.buffer = new long[Math.min(capacity, INITIAL_RECORDS) * width];
+            this.files = new ArrayList<>();
+            this.goalStep = -1;
+        }
+
+        void add(SearchState state) {
+            if (!encode(this.codec, state, this.buffer, this.size * this.width)) return;
+            this.size++;
+            if (this.size * this.width < this.buffer.length) return;
+            if (this.size < this.capacity) {
+                this.buffer = Arrays.copyOf(this.buffer, (int) Math.min(2L * this.size, this.capacity) * this.width);
+            } else {
+                try {
+                    this.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+
+        /**
+         * Sorts the buffer and writes it, without repeated records, to a new run file
+         */
+        void flush() throws IOException {
+            if (this.size == 0) return;
+            sortRecords(this.buffer, 0, this.size - 1, this.width, new long[this.width]);
+            Path file = this.dir.resolve("run-" + this.files.size() + ".bin");
+            try (RecordWriter writer = new RecordWriter(file, this.width)) {
+                for (int i = 0; i < this.size; i++) {
+                    if (i == 0 || compare(this.buffer, i * this.width, this.buffer, (i - 1) * this.width, this.width) != 0) {
+                        writer.write(this.buffer, i * this.width);
+                    }
+                }
+            }
+            this.files.add(file);
+            this.size = 0;
+        }
+    }
+
+    /**
+     * Merges the sorted runs into a new layer, dropping repeated states and states of earlier layers
+     *
+     * @return number of states in the new layer
+     */
+    private static long mergeNewStates(List<Path> runs, List<Path> layers, Path out, int width) throws IOException {
+        List<RecordReader> inputs = new ArrayList<>();
+        List<RecordReader> seen = new ArrayList<>();
+        long written = 0;
+        try (RecordWriter writer = new RecordWriter(out, width)) {
+            for (Path run : runs) {
+                RecordReader reader = new RecordReader(run, width);
+                inputs.add(reader);
+                reader.advance();
+            }
+            for (Path layer : layers) {
+                RecordReader reader = new RecordReader(layer, width);
+                seen.add(reader);
+                reader.advance();
+            }
+            long[] last = null;
+            while (true) {
+                RecordReader min = null;
+                for (RecordReader input : inputs) {
+                    if (input.hasHead() && (min == null || compare(input.head(), 0, min.head(), 0, width) < 0)) {
+                        min = input;
+                    }
+                }
+                if (min == null) break;
+                long[] candidate = min.head().clone();
+                min.advance();
+                if (last != null && Arrays.equals(candidate, last)) continue;
+                last = candidate;
+
+                boolean known = false;
+                for (RecordReader layer : seen) {
+                    while (layer.hasHead() && compare(layer.head(), 0, candidate, 0, width) < 0) {
+                        layer.advance();
+                    }
+                    if (layer.hasHead() && Arrays.equals(layer.head(), candidate)) {
+                        known = true;
+                        break;
+                    }
+                }
+                if (!known) {
+                    writer.write(candidate, 0);
+                    written++;
+                }
+            }
+        } finally {
+            for (RecordReader reader : inputs) {
+                reader.close();
+            }
+            for (RecordReader reader : seen) {
+                reader.close();
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Finds the steps from the initial state to target, looking in each earlier layer for a parent
+     *
+     * @param depth layer of target
+     * @return steps, in order
+     */
+    private List<Integer> pathTo(StateSpace space, StateCodec codec, List<Path> layers, int depth,
+                                 SearchState target) throws IOException {
+        List<Integer> steps = new ArrayList<>();
+        SearchState current = target;
+        for (int layer = depth - 1; layer >= 0; layer--) {
+            SearchState child = current;
+            SearchState[] parent = {null};
+            int[] parentStep = {-1};
+            try (RecordReader reader = new RecordReader(layers.get(layer), 1 + codec.words())) {
+                while (parent[0] == null && reader.advance()) {
+                    SearchState state = decode(codec, space.board(), child.nBoxes(), reader.head());
+                    space.successors(state, (next, step) -> {
+                        if (parent[0] == null && next.equals(child)) {
+                            parent[0] = state;
+                            parentStep[0] = step;
+                        }
+                    });
+                }
+            }
+            assert (parent[0] != null);
+            steps.add(0, parentStep[0]);
+            current = parent[0];
+        }
+        return steps;
+    }
+
+    /**
+     * @return false if a box of state is in a dead square
+     */
+    private static boolean encode(StateCodec codec, SearchState state, long[] dst, int offset) {
+        dst[offset] = state.keeper();
+        return codec.encode(state, dst, offset + 1);
+    }
+
+    private static SearchState decode(StateCodec codec, BoardModel board, int nBoxes, long[] record) {
+        return SearchState.of(board, (int) record[0], codec.decode(record, 1, nBoxes));
+    }
+
+    /**
+     * Unsigned order of two records
+     */
+    private static int compare(long[] a, int aOffset, long[] b, int bOffset, int width) {
+        for (int word = 0; word < width; word++) {
+            final int result = Long.compareUnsigned(a[aOffset + word], b[bOffset + word]);
+            if (result != 0) return result;
+        }
+        return 0;
+    }
+
+    /**
+     * Quicksort of the records from lo to hi, both included
+     */
+    private static void sortRecords(long[] data, int lo, int hi, int width, long[] pivot) {
+        while (lo < hi) {
+            System.arraycopy(data, ((lo + hi) >>> 1) * width, pivot, 0, width);
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (compare(data, i * width, pivot, 0, width) < 0) i++;
+                while (compare(data, j * width, pivot, 0, width) > 0) j--;
+                if (i <= j) {
+                    for (int word = 0; word < width; word++) {
+                        final long tmp = data[i * width + word];
+                        data[i * width + word] = data[j * width + word];
+                        data[j * width + word] = tmp;
+                    }
+                    i++;
+                    j--;
+                }
+            }
+            // recurse on the smaller side, so the stack stays small
+            if (j - lo < hi - i) {
+                sortRecords(data, lo, j, width, pivot);
+                lo = i;
+            } else {
+                sortRecords(data, i, hi, width, pivot);
+                hi = j;
+            }
+        }
+    }
+
+    /**
+     * Deletes a directory and its files, going on after a file that cannot be deleted;
+     * what cannot be deleted now is deleted when the program exits
+     *
+     * @return the first failure, with the others suppressed in it, or null if everything was deleted
+     */
+    private static IOException deleteAll(Path dir) {
+        IOException failure = null;
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : files.toList()) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    // files registered after their directory are deleted before it
+                    if (failure == null) dir.toFile().deleteOnExit();
+                    file.toFile().deleteOnExit();
+                    if (failure == null) failure = e;
+                    else failure.addSuppressed(e);
+                }
+            }
+            Files.deleteIfExists(dir);
+        } catch (IOException e) {
+            dir.toFile().deleteOnExit();
+            if (failure == null) failure = e;
+            else failure.addSuppressed(e);
+        }
+        return failure;
+    }
+
+    /**
+     * Appends records to a file through a small direct buffer
+     */
+    private static final class RecordWriter implements Closeable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+        private final int width;
+
+        RecordWriter(Path file, int width) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            this.buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES / (8 * width) * 8 * width + 8 * width)
+                    .order(ByteOrder.nativeOrder());
+            this.width = width;
+        }
+
+        void write(long[] src, int offset) throws IOException {
+            if (this.buffer.remaining() < 8 * this.width) this.drain();
+            for (int word = 0; word < this.width; word++) {
+                this.buffer.putLong(src[offset + word]);
+            }
+        }
+
+        private void drain() throws IOException {
+            this.buffer.flip();
+            while (this.buffer.hasRemaining()) {
+                this.channel.write(this.buffer);
+            }
+            this.buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.drain();
+            this.channel.close();
+        }
+    }
+
+    /**
+     * Reads the records of a file in order through memory mapped chunks
+     */
+    private static final class RecordReader implements Closeable {
+        private final FileChannel channel;
+        private final long size;
+        private final int width;
+        private final long chunkBytes;
+        private final long[] head;
+        private MappedByteBuffer chunk;
+        private long chunkStart;
+        private boolean hasHead;
+
+        RecordReader(Path file, int width) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.READ);
+            this.size = this.channel.size();
+            this.width = width;
+            this.chunkBytes = (long) (MAPPED_CHUNK_BYTES / (8 * width)) * 8 * width;
+            this.head = new long[width];
+            this.chunkStart = -this.chunkBytes;
+        }
+
+        /**
+         * Loads the next record in head
+         *
+         * @return false at the end of the file
+         */
+        boolean advance() throws IOException {
+            if (this.chunk == null || !this.chunk.hasRemaining()) {
+                this.chunkStart += this.chunkBytes;
+                if (this.chunkStart >= this.size) {
+                    this.hasHead = false;
+                    return false;
+                }
+                this.chunk = this.channel.map(FileChannel.MapMode.READ_ONLY, this.chunkStart,
+                        Math.min(this.chunkBytes, this.size - this.chunkStart));
+                this.chunk.order(ByteOrder.nativeOrder());
+            }
+            for (int word = 0; word < this.width; word++) {
+                this.head[word] = this.chunk.getLong();
+            }
+            this.hasHead = true;
+            return true;
+        }
+
+        boolean hasHead() {
+            return this.hasHead;
+        }
+
+        long[] head() {
+            return this.head;
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.channel.close();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package pt.ipbeja.po2.sokoban2023.solver;
+
+/**
+ * Lower bound of the number of steps from a state to a solution
+ * Must never overestimate, so that the solvers find optimal solutions
+ *
+ * @author Diogo Patusca 23925, João Costa 22890
+ * @version 2023/06/11
+ */
+public interface Heuristic {
+    /**
+     * Estimate of a state that can never be solved
+     */
+    int UNSOLVABLE = Integer.MAX_VALUE;
+
+    /**
+     * @param state search state
+     * @return lower bound of the steps to solve state, or UNSOLVABLE
+     */
+    int estimate(SearchState state);
+
+    /**
+     * Estimate of a successor of parent; heuristics that can reuse the work done for parent override this
+     *
+     * @param state  search state
+     * @param parent state expanded to reach state
+     * @return lower bound of the steps to solve state, or UNSOLVABLE
+     */
+    default int estimate(SearchState state, SearchState parent) {
+        return this.estimate(state);
+    }
+}
@@ -0,0 +1,151 @@
+package pt.ipbeja.po2.sokoban2023.solver;
+
+import pt.ipbeja.po2.sokoban2023.model.BoardModel;
+import pt.ipbeja.po2.sokoban2023.model.Direction;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeper areas of push level searches: the cells the keeper can walk to without pushing,
+ * with a state keeping the lowest cell of its area as keeper cell
+ * Also the pulls of backward searches and the solved states they start from
+ *
+ * @author Diogo Patusca 23925, João Costa 22890
+ * @version 2023/06/11
+ */
+final class KeeperAreas {
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private KeeperAreas() {
+    }
+
+    /**
+     * Breadth-first flood fill of the cells the keeper can walk to without pushing
+     *
+     * @param board  the board
+     * @param state  boxes
+     * @param keeper keeper cell
+     * @param area   receives the reached cells, in the order they were reached
+     * @param from   if not null, receives the direction ordinal + 1 used to enter each reached cell
+     * @return number of reached cells
+     */
+    static int reach(BoardModel board, SearchState state, int keeper, int[] area, byte[] from) {
+        boolean[] reached = new boolean[board.nCells()];
+        int size = 0;
+        area[size++] = keeper;
+        reached[keeper] = true;
+        for (int head = 0; head < size; head++) {
+            final int cell = area[head];
+            for (Direction dir : DIRECTIONS) {
+                final int next = cell + board.offset(dir);
+                if (reached[next] || board.isWall(next) || state.hasBox(next)) continue;
+                reached[next] = true;
+                area[size++] = next;
+                if (from != null) from[next] = (byte) (dir.ordinal() + 1);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @param board the board
+     * @param state search state
+     * @return the same state with the keeper in the lowest cell it can reach
+     */
+    static SearchState normalize(BoardModel board, SearchState state) {
+        int[] area = new int[board.nCells()];
+        final int size = reach(board, state, state.keeper(), area, null);
+        int lowest = area[0];
+        for (int i = 1; i < size; i++) {
+            lowest = Math.min(lowest, area[i]);
+        }
+        return lowest == state.keeper() ? state : state.withKeeper(board, lowest);
+    }
+
+    /**
+     * Backward successors: the keeper steps away from a box next to it and pulls the box along
+     * The step is the PushSpace push code of the push that undoes the pull
+     *
+     * @param board the board
+     * @param state normalized state
+     * @param sink  receives the normalized states after each pull
+     */
+    static void pulls(BoardModel board, SearchState state, StateSpace.SuccessorSink sink) {
+        int[] area = new int[board.nCells()];
+        final int size = reach(board, state, state.keeper(), area, null);
+        for (int i = 0; i < size; i++) {
+            final int keeper = area[i];
+            for (Direction dir : DIRECTIONS) {
+                final int offset = board.offset(dir);
+                final int box = keeper - offset;
+                final int newKeeper = keeper + offset;
+                if (!state.hasBox(box) || board.isWall(newKeeper) || state.hasBox(newKeeper)) continue;
+                SearchState pulled = state.moveBox(board, newKeeper, box, keeper);
+                sink.accept(normalize(board, pulled), keeper * 4 + dir.opposite().ordinal());
+            }
+        }
+    }
+
+    /**
+     * Solved states: boxes in end positions and the keeper in each free area
+     * With more end positions than boxes every choice of end positions is used, up to maxChoices
+     *
+     * @param board      the board
+     * @param nBoxes     number of boxes
+     * @param maxChoices highest number of choices of end positions
+     * @return normalized solved states
+     */
+    static List<SearchState> solvedStates(BoardModel board, int nBoxes, int maxChoices) {
+        List<int[]> choices = new ArrayList<>();
+        chooseEnds(board, new int[nBoxes], 0, 0, choices, maxChoices);
+        List<SearchState> solved = new ArrayList<>();
+        int[] area = new int[board.nCells()];
+        for (int[] ends : choices) {
+            SearchState boxes = SearchState.of(board, ends.length > 0 ? ends[0] : 0, ends);
+            boolean[] done = new boolean[board.nCells()];
+            for (int cell = 0; cell < board.nCells(); cell++) {
+                if (done[cell] || board.isWall(cell) || boxes.hasBox(cell)) continue;
+                final int size = reach(board, boxes, cell, area, null);
+                for (int a = 0; a < size; a++) {
+                    done[area[a]] = true;
+                }
+                solved.add(boxes.withKeeper(board, cell)); // cell is the lowest cell of its area
+            }
+        }
+        return solved;
+    }
+
+    /**
+     * @param board      the board
+     * @param nBoxes     number of boxes
+     * @param maxChoices highest number of choices of end positions
+     * @return true if solvedStates with maxChoices has the solved states of every choice of end positions
+     */
+    static boolean hasAllSolvedStates(BoardModel board, int nBoxes, int maxChoices) {
+        if (nBoxes > board.nEnds()) return true; // no choice at all
+        // C(nEnds, nBoxes) as C(nEnds - nBoxes + k, k) for k up to nBoxes, which never decreases
+        long choices = 1;
+        for (int k = 1; k <= nBoxes; k++) {
+            choices = choices * (board.nEnds() - nBoxes + k) / k;
+            if (choices > maxChoices) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Adds every choice of end positions for the boxes, in increasing order, to choices
+     */
+    private static void chooseEnds(BoardModel board, int[] chosen, int count, int firstEnd,
+                                   List<int[]> choices, int maxChoices) {
+        if (choices.size() == maxChoices) return;
+        if (count == chosen.length) {
+            choices.add(chosen.clone());
+            return;
+        }
+        for (int end = firstEnd; end <= board.nEnds() - (chosen.length - count); end++) {
+            chosen[count] = board.endCell(end);
+            chooseEnds(board, chosen, count + 1, end + 1, choices, maxChoices);
+        }
+    }
+}
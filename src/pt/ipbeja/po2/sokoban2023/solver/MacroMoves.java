@@ -0,0 +1,355 @@
+package pt.ipbeja.po2.sokoban2023.solver;
+
+import pt.ipbeja.po2.sokoban2023.model.BoardModel;
+import pt.ipbeja.po2.sokoban2023.model.Direction;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Macro pushes of a board, found once before the search:
+ * a box pushed into a tunnel (a corridor one cell wide, with the keeper in it behind the box) is pushed on
+ * until it leaves the tunnel, and a box pushed into the goal room (the cells of all end positions,
+ * closed off by one entrance cell) is pushed straight to the next end position of the packing order
+ * The packing order is found backwards, pulling the boxes out of the full room one at a time,
+ * so every box of the order can still reach its end position after the ones before it
+ * A macro may lose the fewest pushes, and in rare levels a tunnel macro may lose every solution
+ *
+ * @author Diogo Patusca 23925, João Costa 22890
+ * @version 2023/06/11
+ */
+final class MacroMoves {
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final int MAX_ROOM_CELLS = 64;
+    private final BoardModel board;
+    /**
+     * Bit d of a cell is set if the cell is in a tunnel along direction ordinal d
+     */
+    private final byte[] tunnels;
+    private final boolean[] room;
+    private final int entrance;
+    private final int[] packingOrder;
+    private final int[][] packingPushes;
+
+    /**
+     * Pushes of a macro and the state after them
+     *
+     * @param state  state after the last push, keeper behind the box
+     * @param pushes push codes, the first is the push that started the macro
+     */
+    record Expansion(SearchState state, int[] pushes) {
+    }
+
+    MacroMoves(BoardModel board) {
+        this.board = board;
+        this.tunnels = new byte[board.nCells()];
+        for (int cell = 0; cell < board.nCells(); cell++) {
+            if (board.isWall(cell)) continue;
+            for (Direction dir : DIRECTIONS) {
+                final int behind = cell - board.offset(dir);
+                if (!board.isWall(behind) && this.isNarrow(cell, dir) && this.isNarrow(behind, dir)) {
+                    this.tunnels[cell] |= (byte) (1 << dir.ordinal());
+                }
+            }
+        }
+
+        this.room = new boolean[board.nCells()];
+        final int entrance = this.findGoalRoom();
+        List<int[]> order = entrance < 0 ? null : this.packingOrder(entrance);
+        this.entrance = order == null ? -1 : entrance;
+        this.packingOrder = new int[order == null ? 0 : order.size()];
+        this.packingPushes = new int[this.packingOrder.length][];
+        for (int k = 0; k < this.packingOrder.length; k++) {
+            // order holds the end cell followed by its pushes
+            int[] packing = order.get(k);
+            this.packingOrder[k] = packing[0];
+            this.packingPushes[k] = Arrays.copyOfRange(packing, 1, packing.length);
+        }
+        if (order == null) Arrays.fill(this.room, false);
+    }
+
+    /**
+     * @return true if both cells beside cell, across dir, are walls
+     */
+    private boolean isNarrow(int cell, Direction dir) {
+        for (Direction side : DIRECTIONS) {
+            if (side != dir && side != dir.opposite() && !this.board.isWall(cell + this.board.offset(side))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param cell a cell
+     * @param dir  direction of the pushes
+     * @return true if a box on cell, pushed in dir, is in a tunnel with the keeper behind it
+     */
+    boolean isTunnel(int cell, Direction dir) {
+        return (this.tunnels[cell] & (1 << dir.ordinal())) != 0;
+    }
+
+    /**
+     * @return the entrance cell of the goal room, or -1 if the board has no goal room with a packing order
+     */
+    int entrance() {
+        return this.entrance;
+    }
+
+    /**
+     * @return the end cells of the goal room in the order they are filled
+     */
+    int[] packingOrder() {
+        return this.packingOrder.clone();
+    }
+
+    /**
+     * The smallest area with every end position that is closed off by one cell, the entrance
+     *
+     * @return the entrance, with the room marked in room, or -1
+     */
+    private int findGoalRoom() {
+        if (this.board.nEnds() == 0) return -1;
+        int bestEntrance = -1;
+        int bestSize = MAX_ROOM_CELLS + 1;
+        int[] area = new int[MAX_ROOM_CELLS + 1];
+        // each fill marks its cells with a new number, so they never have to be cleared
+        int[] reached = new int[this.board.nCells()];
+        int mark = 0;
+        for (int cell = 0; cell < this.board.nCells(); cell++) {
+            if (this.board.isWall(cell) || this.board.isEnd(cell)) continue;
+            for (Direction dir : DIRECTIONS) {
+                final int size = this.flood(cell + this.board.offset(dir), cell, area, reached, ++mark);
+                if (size < bestSize && this.hasAllEnds(area, size) && this.hasOutside(cell, area, size)) {
+                    bestEntrance = cell;
+                    bestSize = size;
+                    Arrays.fill(this.room, false);
+                    for (int i = 0; i < size; i++) {
+                        this.room[area[i]] = true;
+                    }
+                }
+            }
+        }
+        return bestEntrance;
+    }
+
+    /**
+     * Flood fill from start without crossing blocked, up to MAX_ROOM_CELLS + 1 cells,
+     * marking the reached cells with mark
+     *
+     * @return number of cells in area, MAX_ROOM_CELLS + 1 if the area is larger
+     */
+    private int flood(int start, int blocked, int[] area, int[] reached, int mark) {
+        if (this.board.isWall(start)) return area.length;
+        reached[start] = mark;
+        reached[blocked] = mark;
+        int size = 0;
+        area[size++] = start;
+        for (int head = 0; head < size; head++) {
+            for (Direction dir : DIRECTIONS) {
+                final int next = area[head] + this.board.offset(dir);
+                if (reached[next] == mark || this.board.isWall(next)) continue;
+                if (size == area.length) return area.length;
+                reached[next] = mark;
+                area[size++] = next;
+            }
+        }
+        return size;
+    }
+
+    private boolean hasAllEnds(int[] area, int size) {
+        int ends = 0;
+        for (int i = 0; i < size; i++) {
+            if (this.board.isEnd(area[i])) ends++;
+        }
+        return ends == this.board.nEnds();
+    }
+
+    /**
+     * @return true if entrance also leads to cells out of area
+     */
+    private boolean hasOutside(int entrance, int[] area, int size) {
+        for (Direction dir : DIRECTIONS) {
+            final int next = entrance + this.board.offset(dir);
+            boolean inArea = false;
+            for (int i = 0; i < size && !inArea; i++) {
+                inArea = area[i] == next;
+            }
+            if (!this.board.isWall(next) && !inArea) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Pulls the boxes out of the full room, the one nearest to the entrance first
+     *
+     * @return for each end cell in packing order, the end cell followed by the pushes from the entrance;
+     * null if the room cannot be emptied
+     */
+    private List<int[]> packingOrder(int entrance) {
+        List<Integer> left = new ArrayList<>();
+        for (int end = 0; end < this.board.nEnds(); end++) {
+            left.add(this.board.endCell(end));
+        }
+        final int[] distance = this.walkDistances(entrance);
+        left.sort(Comparator.comparingInt(cell -> distance[cell]));
+
+        List<int[]> removed = new ArrayList<>();
+        while (!left.isEmpty()) {
+            int[] pushes = null;
+            for (int i = 0; i < left.size() && pushes == null; i++) {
+                pushes = this.pullOut(entrance, left, i);
+                if (pushes != null) {
+                    int[] packing = new int[pushes.length + 1];
+                    packing[0] = left.remove(i);
+                    System.arraycopy(pushes, 0, packing, 1, pushes.length);
+                    removed.add(0, packing);
+                }
+            }
+            if (pushes == null) return null;
+        }
+        return removed;
+    }
+
+    private int[] walkDistances(int from) {
+        int[] distance = new int[this.board.nCells()];
+        Arrays.fill(distance, Integer.MAX_VALUE);
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        distance[from] = 0;
+        queue.add(from);
+        while (!queue.isEmpty()) {
+            final int cell = queue.poll();
+            for (Direction dir : DIRECTIONS) {
+                final int next = cell + this.board.offset(dir);
+                if (this.board.isWall(next) || distance[next] != Integer.MAX_VALUE) continue;
+                distance[next] = distance[cell] + 1;
+                queue.add(next);
+            }
+        }
+        return distance;
+    }
+
+    /**
+     * Breadth-first pulls of one box of the room to the entrance, the other boxes staying put,
+     * with the keeper coming in through the entrance
+     *
+     * @param boxes the boxes in the room
+     * @param index the box to pull out
+     * @return the pushes that take the box back from the entrance to its cell, or null
+     */
+    private int[] pullOut(int entrance, List<Integer> boxes, int index) {
+        int[] cells = new int[boxes.size()];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = boxes.get(i);
+        }
+        SearchState start = KeeperAreas.normalize(this.board, SearchState.of(this.board, entrance, cells));
+        Map<SearchState, SearchState> parents = new HashMap<>();
+        Map<SearchState, Integer> steps = new HashMap<>();
+        int[] boxCell = {boxes.get(index)};
+        parents.put(start, start);
+        ArrayDeque<SearchState> queue = new ArrayDeque<>(List.of(start));
+        Map<SearchState, Integer> pulledBox = new HashMap<>(Map.of(start, boxCell[0]));
+        while (!queue.isEmpty()) {
+            SearchState state = queue.poll();
+            final int box = pulledBox.get(state);
+            SearchState[] goal = new SearchState[1];
+            KeeperAreas.pulls(this.board, state, (pulled, step) -> {
+                final int to = step >>> 2;
+                final Direction push = DIRECTIONS[step & 3];
+                final int from = to + this.board.offset(push);
+                if (from != box || goal[0] != null || parents.containsKey(pulled)) return;
+                if (to == entrance) {
+                    // only the pull that leaves the keeper out of the room ends the search
+                    if (this.room[to - this.board.offset(push)]) return;
+                    goal[0] = pulled;
+                } else if (!this.room[to]) {
+                    return;
+                }
+                parents.put(pulled, state);
+                steps.put(pulled, step);
+                pulledBox.put(pulled, to);
+                queue.add(pulled);
+            });
+            if (goal[0] != null) {
+                // the last pull is undone by the first push
+                List<Integer> pushes = new ArrayList<>();
+                for (SearchState s = goal[0]; s != start; s = parents.get(s)) {
+                    pushes.add(steps.get(s));
+                }
+                return pushes.stream().mapToInt(Integer::intValue).toArray();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Applies a push and the macro it starts, if any
+     *
+     * @param state state before the push
+     * @param box   cell of the pushed box
+     * @param dir   direction of the push, the push must be possible
+     * @return the pushes and the state after them
+     */
+    Expansion expand(SearchState state, int box, Direction dir) {
+        final int offset = this.board.offset(dir);
+        List<Integer> pushes = new ArrayList<>(List.of(box * 4 + dir.ordinal()));
+        SearchState current = state.moveBox(this.board, box, box, box + offset);
+        int cell = box + offset;
+        if (cell == this.entrance && !this.room[box]) {
+            int[] packing = this.packing(current);
+            if (packing != null) {
+                for (int push : packing) {
+                    pushes.add(push);
+                    final int from = push >>> 2;
+                    current = current.moveBox(this.board, from, from, from + this.board.offset(DIRECTIONS[push & 3]));
+                }
+            }
+        } else {
+            while (this.isTunnel(cell, dir) && !this.board.isEnd(cell)) {
+                final int next = cell + offset;
+                if (this.board.isWall(next) || current.hasBox(next) || this.board.isDeadSquare(next)) break;
+                pushes.add(cell * 4 + dir.ordinal());
+                current = current.moveBox(this.board, cell, cell, next);
+                cell = next;
+            }
+        }
+        return new Expansion(current, pushes.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    /**
+     * @param state state with a box on the entrance
+     * @return pushes of the box to the next end position of the packing order, or null if the boxes
+     * in the room are not the ones before it in the order, or the pushes are not possible
+     */
+    private int[] packing(SearchState state) {
+        int inRoom = 0;
+        for (int i = 0; i < state.nBoxes(); i++) {
+            if (this.room[state.box(i)]) inRoom++;
+        }
+        if (inRoom >= this.packingOrder.length) return null;
+        for (int k = 0; k < inRoom; k++) {
+            if (!state.hasBox(this.packingOrder[k])) return null;
+        }
+        // the pushes were found with these boxes in the room, only check that the keeper can start them
+        int[] pushes = this.packingPushes[inRoom];
+        SearchState current = state;
+        int[] area = new int[this.board.nCells()];
+        for (int push : pushes) {
+            final int from = push >>> 2;
+            final int offset = this.board.offset(DIRECTIONS[push & 3]);
+            final int size = KeeperAreas.reach(this.board, current, current.keeper(), area, null);
+            boolean reached = false;
+            for (int i = 0; i < size && !reached; i++) {
+                reached = area[i] == from - offset;
+            }
+            if (!reached || !current.hasBox(from) || current.hasBox(from + offset)) return null;
+            current = current.moveBox(this.board, from, from, from + offset);
+        }
+        return pushes;
+    }
+}
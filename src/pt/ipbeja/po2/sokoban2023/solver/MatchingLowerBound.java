@@ -0,0 +1,268 @@
+package pt.ipbeja.po2.sokoban2023.solver;
+
+import pt.ipbeja.po2.sokoban2023.model.BoardModel;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cost of the best assignment of boxes to different end positions, using the push distances of BoardModel
+ * Each box needs its own end position and each push moves one box one position,
+ * so this never exceeds the pushes (or moves) left, and it is never lower than SimpleLowerBound
+ * The assignment is found with the Hungarian algorithm; a successor that moved one box only
+ * repairs the assignment of that box, starting from the assignment of its parent
+ * With more end positions than boxes the repair is not optimal (a freed end position keeps its potential),
+ * so those boards always solve from scratch
+ * Each thread keeps the assignments of the states it estimated last, so a state expanded soon after it was
+ * generated starts from its own repaired assignment and is never solved again;
+ * one instance can be shared by several search threads
+ *
+ * @author Diogo Patusca 23925, João Costa 22890
+ * @version 2023/06/11
+ * Based on https://en.wikipedia.org/wiki/Hungarian_algorithm
+ */
+public class MatchingLowerBound implements Heuristic {
+    private static final int INF = Integer.MAX_VALUE;
+    private static final int MAX_KEPT = 1 << 14;
+    private final BoardModel board;
+    /**
+     * Cost of a box that can never reach an end position, higher than any assignment of finite push distances,
+     * so it is never in a best assignment that has a solution
+     */
+    private final int noPath;
+    /**
+     * Assignments of the last states estimated by each thread, the least recently used is dropped
+     */
+    private final ThreadLocal<Map<SearchState, Assignment>> kept;
+    private final LongAdder solves;
+
+    public MatchingLowerBound(BoardModel board) {
+        this.board = board;
+        // at most nEnds() boxes are assigned, each one to its farthest end position at worst
+        int farthest = 0;
+        for (int end = 0; end < board.nEnds(); end++) {
+            for (int cell = 0; cell < board.nCells(); cell++) {
+                final int distance = board.pushDistance(end, cell);
+                if (distance != BoardModel.UNREACHABLE) farthest = Math.max(farthest, distance);
+            }
+        }
+        this.noPath = board.nEnds() * farthest + 1;
+        this.kept = ThreadLocal.withInitial(() -> new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<SearchState, Assignment> eldest) {
+                return this.size() > MAX_KEPT;
+            }
+        });
+        this.solves = new LongAdder();
+    }
+
+    @Override
+    public int estimate(SearchState state) {
+        Assignment assignment = this.solve(state);
+        if (state.nBoxes() == this.board.nEnds()) this.kept.get().put(state, assignment);
+        return assignment.value();
+    }
+
+    @Override
+    public int estimate(SearchState state, SearchState parent) {
+        if (state.nBoxes() != this.board.nEnds()) return this.estimate(state);
+        Map<SearchState, Assignment> kept = this.kept.get();
+        Assignment memo = kept.get(parent);
+        if (memo == null) {
+            memo = this.solve(parent);
+            kept.put(parent, memo);
+        }
+
+        // find the one box that moved, the box arrays are sorted
+        int oldCell = -1;
+        int newCell = -1;
+        for (int i = 0, j = 0; i < parent.nBoxes() || j < state.nBoxes(); ) {
+            if (j == state.nBoxes() || (i < parent.nBoxes() && parent.box(i) < state.box(j))) {
+                if (oldCell >= 0) return this.estimate(state);
+                oldCell = parent.box(i++);
+            } else if (i == parent.nBoxes() || state.box(j) < parent.box(i)) {
+                if (newCell >= 0) return this.estimate(state);
+                newCell = state.box(j++);
+            } else {
+                i++;
+                j++;
+            }
+        }
+        if (oldCell < 0 && newCell < 0) {
+            // only the keeper moved, the assignment is the same
+            kept.put(state, memo);
+            return memo.value();
+        }
+        if (oldCell < 0 || newCell < 0) return this.estimate(state);
+
+        // a repaired assignment keeps the rows of its parent, which need not follow the sorted boxes
+        Assignment child = memo.copy();
+        final int row = child.rowOf(oldCell);
+        child.cellOfRow[row] = newCell;
+        child.cost[row] = this.costRow(newCell);
+        child.reassign(row);
+        kept.put(state, child);
+        return child.value();
+    }
+
+    /**
+     * @param cell box cell
+     * @return push distance from cell to each end position, indexed from 1
+     */
+    private int[] costRow(int cell) {
+        int[] row = new int[this.board.nEnds() + 1];
+        for (int end = 0; end < this.board.nEnds(); end++) {
+            final int distance = this.board.pushDistance(end, cell);
+            row[end + 1] = distance == BoardModel.UNREACHABLE ? this.noPath : distance;
+        }
+        return row;
+    }
+
+    /**
+     * @return number of assignments solved from scratch, by every thread
+     */
+    long solves() {
+        return this.solves.sum();
+    }
+
+    /**
+     * Best assignment of the boxes of state, from scratch
+     */
+    private Assignment solve(SearchState state) {
+        this.solves.increment();
+        final int nBoxes = state.nBoxes();
+        final int nEnds = this.board.nEnds();
+        if (nBoxes > nEnds) return new Assignment(null, 0, 0);
+        Assignment assignment = new Assignment(new int[nBoxes + 1][], nBoxes, nEnds);
+        for (int box = 0; box < nBoxes; box++) {
+            assignment.cellOfRow[box + 1] = state.box(box);
+            assignment.cost[box + 1] = this.costRow(state.box(box));
+        }
+        for (int row = 1; row <= nBoxes; row++) {
+            assignment.assign(row);
+        }
+        return assignment;
+    }
+
+    /**
+     * Assignment of boxes (rows, from 1, each with the cell of its box) to end positions (columns, from 1)
+     * with the dual potentials of the Hungarian algorithm; cost is null if there are more boxes than end positions
+     */
+    private final class Assignment {
+        private final int[] cellOfRow;
+        private final int[][] cost;
+        private final int[] u;
+        private final int[] v;
+        private final int[] rowOfColumn;
+
+        Assignment(int[][] cost, int nRows, int nColumns) {
+            this.cellOfRow = new int[nRows + 1];
+            this.cost = cost;
+            this.u = new int[nRows + 1];
+            this.v = new int[nColumns + 1];
+            this.rowOfColumn = new int[nColumns + 1];
+        }
+
+        private Assignment(Assignment other) {
+            this.cellOfRow = other.cellOfRow.clone();
+            this.cost = other.cost.clone(); // rows are shared, only replaced rows are new
+            this.u = other.u.clone();
+            this.v = other.v.clone();
+            this.rowOfColumn = other.rowOfColumn.clone();
+        }
+
+        Assignment copy() {
+            return new Assignment(this);
+        }
+
+        /**
+         * @return row of the box on cell
+         */
+        int rowOf(int cell) {
+            int row = 1;
+            while (this.cellOfRow[row] != cell) row++;
+            return row;
+        }
+
+        /**
+         * Takes a row out of the assignment after its costs changed, and assigns it again
+         * Only optimal when every column is assigned
+         */
+        void reassign(int row) {
+            for (int column = 1; column < this.rowOfColumn.length; column++) {
+                if (this.rowOfColumn[column] == row) this.rowOfColumn[column] = 0;
+            }
+            // the lowest reduced cost of the row must be 0 again, the other rows are still optimal
+            int min = INF;
+            for (int column = 1; column < this.v.length; column++) {
+                min = Math.min(min, this.cost[row][column] - this.v[column]);
+            }
+            this.u[row] = min;
+            this.assign(row);
+        }
+
+        /**
+         * Adds a row to the assignment through a shortest augmenting path
+         */
+        void assign(int row) {
+            final int nColumns = this.v.length - 1;
+            int[] minReduced = new int[nColumns + 1];
+            int[] previous = new int[nColumns + 1];
+            boolean[] used = new boolean[nColumns + 1];
+            Arrays.fill(minReduced, INF);
+            this.rowOfColumn[0] = row;
+            int column = 0;
+            do {
+                used[column] = true;
+                final int current = this.rowOfColumn[column];
+                int delta = INF;
+                int next = 0;
+                for (int j = 1; j <= nColumns; j++) {
+                    if (used[j]) continue;
+                    final int reduced = this.cost[current][j] - this.u[current] - this.v[j];
+                    if (reduced < minReduced[j]) {
+                        minReduced[j] = reduced;
+                        previous[j] = column;
+                    }
+                    if (minReduced[j] < delta) {
+                        delta = minReduced[j];
+                        next = j;
+                    }
+                }
+                for (int j = 0; j <= nColumns; j++) {
+                    if (used[j]) {
+                        this.u[this.rowOfColumn[j]] += delta;
+                        this.v[j] -= delta;
+                    } else {
+                        minReduced[j] -= delta;
+                    }
+                }
+                column = next;
+            } while (this.rowOfColumn[column] != 0);
+            // flip the augmenting path
+            do {
+                final int prev = previous[column];
+                this.rowOfColumn[column] = this.rowOfColumn[prev];
+                column = prev;
+            } while (column != 0);
+        }
+
+        /**
+         * @return total cost of the assignment, or UNSOLVABLE
+         */
+        int value() {
+            if (this.cost == null) return UNSOLVABLE;
+            int total = 0;
+            for (int column = 1; column < this.rowOfColumn.length; column++) {
+                final int row = this.rowOfColumn[column];
+                if (row != 0) {
+                    if (this.cost[row][column] >= MatchingLowerBound.this.noPath) return UNSOLVABLE;
+                    total += this.cost[row][column];
+                }
+            }
+            return total;
+        }
+    }
+}
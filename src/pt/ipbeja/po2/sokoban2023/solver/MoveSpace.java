@@ -0,0 +1,75 @@
+package pt.ipbeja.po2.sokoban2023.solver;
+
+import pt.ipbeja.po2.sokoban2023.model.BoardModel;
+import pt.ipbeja.po2.sokoban2023.model.DeadlockDetector;
+import pt.ipbeja.po2.sokoban2023.model.Direction;
+import pt.ipbeja.po2.sokoban2023.model.Level;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Move level state space: each step is one keeper move, like SokobanGameModel.moveKeeper
+ * Pushes into dead squares and pushes that freeze boxes or close a corral are left out,
+ * they can never lead to a solution
+ * The step code is the direction ordinal
+ *
+ * @author Diogo Patusca 23925, João Costa 22890
+ * @version 2023/06/11
+ */
+public class MoveSpace implements StateSpace {
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private final BoardModel board;
+    private final SearchState initial;
+    private final DeadlockDetector deadlocks;
+
+    public MoveSpace(BoardModel board, Level level) {
+        this.board = board;
+        this.deadlocks = new DeadlockDetector(board, level.boxesPositions().size());
+        this.initial = SearchState.initial(board, level);
+    }
+
+    @Override
+    public BoardModel board() {
+        return this.board;
+    }
+
+    @Override
+    public SearchState initial() {
+        return this.initial;
+    }
+
+    @Override
+    public boolean isGoal(SearchState state) {
+        return state.isSolved(this.board);
+    }
+
+    @Override
+    public void successors(SearchState state, SuccessorSink sink) {
+        for (Direction dir : DIRECTIONS) {
+            final int offset = this.board.offset(dir);
+            final int next = state.keeper() + offset;
+            if (this.board.isWall(next)) continue;
+            if (!state.hasBox(next)) {
+                sink.accept(state.withKeeper(this.board, next), dir.ordinal());
+            } else {
+                final int boxNext = next + offset;
+                if (!this.board.isWall(boxNext) && !state.hasBox(boxNext) && !this.board.isDeadSquare(boxNext)) {
+                    SearchState pushed = state.moveBox(this.board, next, next, boxNext);
+                    if (!this.deadlocks.isDeadlockAfterPush(pushed::hasBox, boxNext, next)) {
+                        sink.accept(pushed, dir.ordinal());
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public List<Direction> toMoves(int[] steps) {
+        List<Direction> moves = new ArrayList<>(steps.length);
+        for (int step : steps) {
+            moves.add(DIRECTIONS[step]);
+        }
+        return moves;
+    }
+}
@@ -0,0 +1,135 @@
+package pt.ipbeja.po2.sokoban2023.solver;
+
+import pt.ipbeja.po2.sokoban2023.model.BoardModel;
+import pt.ipbeja.po2.sokoban2023.model.Level;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Breadth-first search that expands each layer in parallel on a fork-join pool
+ * All threads share one concurrent table of visited states
+ * Every step costs 1, so the first layer with a goal gives a solution with the fewest steps,
+ * the same length found by AStarSolver; ties are broken by layer order, so the result does not
+ * depend on the number of threads
+ *
+ * @author Diogo Patusca 23925, João Costa 22890
+ * @version 2023/06/11
+ */
+public class ParallelSolver implements Solver {
+    private final int threads;
+    private final long maxNodes;
+
+    /**
+     * Solver with one thread per available processor
+     */
+    public ParallelSolver() {
+        this(Runtime.getRuntime().availableProcessors(), AStarSolver.DEFAULT_MAX_NODES);
+    }
+
+    /**
+     * @param threads  number of search threads
+     * @param maxNodes the search gives up after expanding this many nodes
+     */
+    public ParallelSolver(int threads, long maxNodes) {
+        if (threads < 1) throw new IllegalArgumentException("threads must be at least 1");
+        this.threads = threads;
+        this.maxNodes = maxNodes;
+    }
+
+    public int threads() {
+        return this.threads;
+    }
+
+    @Override
+    public SolverResult solve(Level level) {
+        return this.solve(new MoveSpace(new BoardModel(level.boardContent()), level));
+    }
+
+    /**
+     * Search node; order is the position of the parent in its layer and of the step among the parent successors
+     */
+    private record Node(SearchState state, Node parent, int step, int depth, long order) {
+    }
+
+    /**
+     * @param space state space to search
+     * @return the solver result
+     */
+    public SolverResult solve(StateSpace space) {
+        SearchStats stats = new SearchStats();
+        SearchState start = space.initial();
+        ConcurrentHashMap<SearchState, Node> visited = new ConcurrentHashMap<>();
+        Node root = new Node(start, null, -1, 0, 0);
+        visited.put(start, root);
+        List<Node> layer = List.of(root);
+
+        ForkJoinPool pool = new ForkJoinPool(this.threads);
+        try {
+            while (!layer.isEmpty()) {
+                for (Node node : layer) {
+                    if (space.isGoal(node.state())) {
+                        return stats.result(space, space.toMoves(steps(node)));
+                    }
+                }
+                if (stats.nodes() + layer.size() > this.maxNodes) break;
+                layer = this.expandLayer(space, layer, visited, stats, pool);
+            }
+        } finally {
+            pool.shutdown();
+        }
+        return stats.result(space, null);
+    }
+
+    /**
+     * Expands every node of a layer in parallel
+     *
+     * @return the next layer, in deterministic order
+     */
+    private List<Node> expandLayer(StateSpace space, List<Node> layer,
+                                   ConcurrentHashMap<SearchState, Node> visited,
+                                   SearchStats stats, ForkJoinPool pool) {
+        Queue<SearchState> added = new ConcurrentLinkedQueue<>();
+        pool.submit(() -> IntStream.range(0, layer.size()).parallel().forEach(i -> {
+            Node parent = layer.get(i);
+            stats.expanded();
+            int[] successor = {0};
+            space.successors(parent.state(), (next, step) -> {
+                Node candidate = new Node(next, parent, step, parent.depth() + 1, ((long) i << 32) | successor[0]++);
+                visited.compute(next, (state, old) -> {
+                    if (old == null) {
+                        added.add(state);
+                        return candidate;
+                    }
+                    // keep the first parent in layer order, whatever thread got here first
+                    return old.depth() == candidate.depth() && candidate.order() < old.order() ? candidate : old;
+                });
+            });
+        })).join();
+
+        List<Node> next = new ArrayList<>(added.size());
+        for (SearchState state : added) {
+            next.add(visited.get(state));
+        }
+        next.sort(Comparator.comparingLong(Node::order));
+        return next;
+    }
+
+    /**
+     * @param node last node of a path
+     * @return steps from the initial state to node
+     */
+    private static int[] steps(Node node) {
+        int[] steps = new int[node.depth()];
+        for (Node n = node; n.parent() != null; n = n.parent()) {
+            steps[n.depth() - 1] = n.step();
+        }
+        return steps;
+    }
+}
@@ -0,0 +1,216 @@
+package pt.ipbeja.po2.sokoban2023.solver;
+
+import pt.ipbeja.po2.sokoban2023.model.BoardModel;
+import pt.ipbeja.po2.sokoban2023.model.Level;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Pattern database of box pairs: for every two cells, the fewest pushes that take two boxes
+ * from those cells to two end positions, with no other boxes on the board
+ * Found by pulling two boxes back from every pair of end positions, one breadth-first search per pair,
+ * run in parallel
+ * The table is saved next to the level in a small binary file (a header and one byte per pair of cells),
+ * and later runs only memory map that file
+ *
+ * @author Diogo Patusca 23925, João Costa 22890
+ * @version 2023/06/11
+ * Based on https://en.wikipedia.org/wiki/Pattern_database
+ */
+public final class PatternDatabase {
+    public static final String EXTENSION = ".pdb";
+    private static final int MAGIC = 0x53504442; // "SPDB"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 20;
+    private static final int NOT_REACHED = 0xFF;
+    private static final int MAX_PUSHES = 0xFE;
+    private final StateCodec codec;
+    private final int n;
+    private final ByteBuffer pushes;
+    private final boolean mapped;
+
+    private PatternDatabase(StateCodec codec, ByteBuffer pushes, boolean mapped) {
+        this.codec = codec;
+        this.n = codec.nCells();
+        this.pushes = pushes;
+        this.mapped = mapped;
+    }
+
+    /**
+     * Loads the database of a level from directory, or computes and saves it if there is no valid file
+     *
+     * @param board     board of the level
+     * @param level     the level, its name gives the file name
+     * @param directory directory of the level file
+     * @return the database
+     * @throws UncheckedIOException if the file could not be read or written
+     */
+    public static PatternDatabase forLevel(BoardModel board, Level level, Path directory) {
+        Path file = directory.resolve(level.levelName() + EXTENSION);
+        try {
+            if (Files.exists(file)) {
+                PatternDatabase loaded = load(board, file);
+                if (loaded != null) return loaded;
+            }
+            PatternDatabase computed = compute(board);
+            computed.save(board, file);
+            return computed;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @param board the board
+     * @param file  database file
+     * @return the memory mapped database, or null if the file is not a database of this board
+     * @throws IOException if the file could not be read
+     */
+    public static PatternDatabase load(BoardModel board, Path file) throws IOException {
+        StateCodec codec = new StateCodec(board);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long expectedSize = HEADER_BYTES + (long) codec.nCells() * codec.nCells();
+            if (channel.size() != expectedSize) return null;
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // read the whole header
+            }
+            header.flip();
+            if (header.getInt() != MAGIC || header.getInt() != VERSION
+                    || header.getLong() != fingerprint(board) || header.getInt() != codec.nCells()) {
+                return null;
+            }
+            // the mapping stays valid after the channel is closed
+            return new PatternDatabase(codec,
+                    channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES, expectedSize - HEADER_BYTES), true);
+        }
+    }
+
+    /**
+     * Computes the database, one search per pair of end positions in parallel
+     *
+     * @param board the board
+     * @return the database, in the heap
+     */
+    public static PatternDatabase compute(BoardModel board) {
+        StateCodec codec = new StateCodec(board);
+        final int n = codec.nCells();
+        // solved states of two boxes, grouped by their pair of end positions
+        Map<Long, List<SearchState>> seeds = new LinkedHashMap<>();
+        for (SearchState solved : KeeperAreas.solvedStates(board, 2, Integer.MAX_VALUE)) {
+            final long ends = ((long) solved.box(0) << 32) | solved.box(1);
+            seeds.computeIfAbsent(ends, key -> new ArrayList<>()).add(solved);
+        }
+        byte[] table = seeds.values().parallelStream()
+                .map(pairSeeds -> pullSearch(board, codec, pairSeeds))
+                .reduce(PatternDatabase::lowest)
+                .orElseGet(() -> unreached(n * n));
+        return new PatternDatabase(codec, ByteBuffer.wrap(table), false);
+    }
+
+    /**
+     * Breadth-first pulls of two boxes from the solved states of one pair of end positions
+     *
+     * @return pushes of each pair of cells, NOT_REACHED if the pair never reaches these end positions
+     */
+    private static byte[] pullSearch(BoardModel board, StateCodec codec, List<SearchState> seeds) {
+        final int n = codec.nCells();
+        byte[] table = unreached(n * n);
+        Set<SearchState> seen = new HashSet<>(seeds);
+        List<SearchState> layer = seeds;
+        for (int depth = 0; !layer.isEmpty(); depth++) {
+            List<SearchState> next = new ArrayList<>();
+            for (SearchState state : layer) {
+                final int a = codec.bitOf(state.box(0));
+                final int b = codec.bitOf(state.box(1));
+                assert (a >= 0 && b >= 0); // pulls from end positions never reach dead squares
+                if ((table[a * n + b] & 0xFF) > depth) {
+                    table[a * n + b] = (byte) Math.min(depth, MAX_PUSHES);
+                    table[b * n + a] = table[a * n + b];
+                }
+                KeeperAreas.pulls(board, state, (pulled, step) -> {
+                    if (seen.add(pulled)) next.add(pulled);
+                });
+            }
+            layer = next;
+        }
+        return table;
+    }
+
+    private static byte[] unreached(int size) {
+        byte[] table = new byte[size];
+        Arrays.fill(table, (byte) NOT_REACHED);
+        return table;
+    }
+
+    private static byte[] lowest(byte[] a, byte[] b) {
+        for (int i = 0; i < a.length; i++) {
+            if ((b[i] & 0xFF) < (a[i] & 0xFF)) a[i] = b[i];
+        }
+        return a;
+    }
+
+    /**
+     * Identifies the board, so a file of another board with the same level name is not used
+     */
+    private static long fingerprint(BoardModel board) {
+        CRC32 crc = new CRC32();
+        crc.update(board.nCols());
+        for (int cell = 0; cell < board.nCells(); cell++) {
+            crc.update(board.contentAt(cell).ordinal());
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * @param board the board of this database
+     * @param file  database file, replaced if it exists
+     * @throws IOException if the file could not be written
+     */
+    public void save(BoardModel board, Path file) throws IOException {
+        ByteBuffer data = ByteBuffer.allocate(HEADER_BYTES + this.n * this.n);
+        data.putInt(MAGIC).putInt(VERSION).putLong(fingerprint(board)).putInt(this.n);
+        data.put(this.pushes.duplicate().rewind());
+        data.flip();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+        }
+    }
+
+    /**
+     * @param cellA cell of a box
+     * @param cellB cell of another box
+     * @return fewest pushes to take both boxes to end positions, or Heuristic.UNSOLVABLE
+     */
+    public int pairPushes(int cellA, int cellB) {
+        final int a = this.codec.bitOf(cellA);
+        final int b = this.codec.bitOf(cellB);
+        if (a < 0 || b < 0) return Heuristic.UNSOLVABLE;
+        final int value = this.pushes.get(a * this.n + b) & 0xFF;
+        return value == NOT_REACHED ? Heuristic.UNSOLVABLE : value;
+    }
+
+    /**
+     * @return true if the database was memory mapped from a file
+     */
+    public boolean isMapped() {
+        return this.mapped;
+    }
+}
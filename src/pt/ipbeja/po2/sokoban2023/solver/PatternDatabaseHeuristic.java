@@ -0,0 +1,102 @@
+package pt.ipbeja.po2.sokoban2023.solver;
+
+import pt.ipbeja.po2.sokoban2023.model.BoardModel;
+
+/**
+ * Lower bound from a PatternDatabase: the boxes are split into disjoint pairs and the pushes of each pair are added
+ * Pairs are taken greedily, the costliest pair of the boxes left first; a box left alone adds its push distance
+ * to the nearest end position
+ * Pushes of different boxes are different pushes and other boxes only get in the way,
+ * so the sum never exceeds the pushes (or moves) left
+ *
+ * @author Diogo Patusca 23925, João Costa 22890
+ * @version 2023/06/11
+ */
+public class PatternDatabaseHeuristic implements Heuristic {
+    /**
+     * How the pairs are combined with the MatchingLowerBound
+     */
+    public enum Combination {
+        /**
+         * Only the sum of the pairs
+         */
+        ADDITIVE,
+        /**
+         * The highest of the sum of the pairs and the MatchingLowerBound, each one is a lower bound
+         */
+        MAX_WITH_MATCHING
+    }
+
+    private final BoardModel board;
+    private final PatternDatabase database;
+    private final Combination combination;
+    private final MatchingLowerBound matching;
+
+    public PatternDatabaseHeuristic(BoardModel board, PatternDatabase database, Combination combination) {
+        this.board = board;
+        this.database = database;
+        this.combination = combination;
+        this.matching = new MatchingLowerBound(board);
+    }
+
+    @Override
+    public int estimate(SearchState state) {
+        final int pairs = this.pairsEstimate(state);
+        if (this.combination == Combination.ADDITIVE || pairs == UNSOLVABLE) return pairs;
+        return Math.max(pairs, this.matching.estimate(state));
+    }
+
+    @Override
+    public int estimate(SearchState state, SearchState parent) {
+        final int pairs = this.pairsEstimate(state);
+        if (this.combination == Combination.ADDITIVE || pairs == UNSOLVABLE) return pairs;
+        return Math.max(pairs, this.matching.estimate(state, parent));
+    }
+
+    /**
+     * @return sum of the pushes of disjoint pairs of boxes, or UNSOLVABLE
+     */
+    private int pairsEstimate(SearchState state) {
+        final int nBoxes = state.nBoxes();
+        int[][] pushes = new int[nBoxes][nBoxes];
+        for (int a = 0; a < nBoxes; a++) {
+            for (int b = a + 1; b < nBoxes; b++) {
+                pushes[a][b] = this.database.pairPushes(state.box(a), state.box(b));
+                if (pushes[a][b] == UNSOLVABLE) return UNSOLVABLE;
+            }
+        }
+        boolean[] paired = new boolean[nBoxes];
+        int total = 0;
+        for (int left = nBoxes; left >= 2; left -= 2) {
+            int bestA = -1;
+            int bestB = -1;
+            for (int a = 0; a < nBoxes; a++) {
+                for (int b = a + 1; b < nBoxes; b++) {
+                    if (!paired[a] && !paired[b] && (bestA < 0 || pushes[a][b] > pushes[bestA][bestB])) {
+                        bestA = a;
+                        bestB = b;
+                    }
+                }
+            }
+            paired[bestA] = true;
+            paired[bestB] = true;
+            total += pushes[bestA][bestB];
+        }
+        for (int box = 0; box < nBoxes; box++) {
+            if (!paired[box]) {
+                final int nearest = this.nearestEnd(state.box(box));
+                if (nearest == UNSOLVABLE) return UNSOLVABLE;
+                total += nearest;
+            }
+        }
+        return total;
+    }
+
+    private int nearestEnd(int cell) {
+        int nearest = UNSOLVABLE;
+        for (int end = 0; end < this.board.nEnds(); end++) {
+            nearest = Math.min(nearest, this.board.pushDistance(end, cell));
+        }
+        return nearest;
+    }
+}
@@ -0,0 +1,162 @@
+package pt.ipbeja.po2.sokoban2023.solver;
+
+import pt.ipbeja.po2.sokoban2023.model.BoardModel;
+import pt.ipbeja.po2.sokoban2023.model.DeadlockDetector;
+import pt.ipbeja.po2.sokoban2023.model.Direction;
+import pt.ipbeja.po2.sokoban2023.model.Level;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Push level state space: each step is one push, the keeper walks freely between pushes
+ * The keeper cell of a state is the lowest cell the keeper can reach, so all the states where
+ * the keeper is in the same area with the same boxes are one state
+ * Pushes into dead squares and pushes that freeze boxes or close a corral are left out
+ * The step code is box cell * 4 + direction ordinal; toMoves adds the keeper walks between pushes
+ * With macros, a push that starts a MacroMoves macro is one step with all the pushes of the macro,
+ * so the solutions may have more than the fewest pushes
+ *
+ * @author Diogo Patusca 23925, João Costa 22890
+ * @version 2023/06/11
+ */
+public class PushSpace implements StateSpace {
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private final BoardModel board;
+    private final SearchState start;
+    private final SearchState initial;
+    private final DeadlockDetector deadlocks;
+    private final MacroMoves macros;
+    private final LongAdder savedStates;
+
+    public PushSpace(BoardModel board, Level level) {
+        this(board, level, false);
+    }
+
+    /**
+     * @param board  board of the level
+     * @param level  the level
+     * @param macros true to use tunnel and goal room macros
+     */
+    public PushSpace(BoardModel board, Level level, boolean macros) {
+        this.board = board;
+        this.macros = macros ? new MacroMoves(board) : null;
+        this.savedStates = new LongAdder();
+        this.deadlocks = new DeadlockDetector(board, level.boxesPositions().size());
+        this.start = SearchState.initial(board, level);
+        this.initial = KeeperAreas.normalize(this.board, this.start);
+    }
+
+    @Override
+    public BoardModel board() {
+        return this.board;
+    }
+
+    @Override
+    public SearchState initial() {
+        return this.initial;
+    }
+
+    @Override
+    public SearchState start() {
+        return this.start;
+    }
+
+    @Override
+    public boolean isGoal(SearchState state) {
+        return state.isSolved(this.board);
+    }
+
+    @Override
+    public void successors(SearchState state, SuccessorSink sink) {
+        int[] area = new int[this.board.nCells()];
+        final int size = KeeperAreas.reach(this.board, state, state.keeper(), area, null);
+        for (int i = 0; i < size; i++) {
+            final int cell = area[i];
+            for (Direction dir : DIRECTIONS) {
+                final int offset = this.board.offset(dir);
+                final int box = cell + offset;
+                final int target = box + offset;
+                if (!state.hasBox(box) || this.board.isWall(target) || state.hasBox(target)
+                        || this.board.isDeadSquare(target)) {
+                    continue;
+                }
+                SearchState pushed;
+                int lastPush = box * 4 + dir.ordinal();
+                if (this.macros == null) {
+                    pushed = state.moveBox(this.board, box, box, target);
+                } else {
+                    MacroMoves.Expansion macro = this.macros.expand(state, box, dir);
+                    pushed = macro.state();
+                    lastPush = macro.pushes()[macro.pushes().length - 1];
+                    this.savedStates.add(macro.pushes().length - 1);
+                }
+                final int lastBox = lastPush >>> 2;
+                final int lastTarget = lastBox + this.board.offset(DIRECTIONS[lastPush & 3]);
+                if (!this.deadlocks.isDeadlockAfterPush(pushed::hasBox, lastTarget, lastBox)) {
+                    sink.accept(KeeperAreas.normalize(this.board, pushed), box * 4 + dir.ordinal());
+                }
+            }
+        }
+    }
+
+    /**
+     * Turns pushes into keeper moves, walking the keeper to each box by a shortest path
+     *
+     * @param steps push codes, in order
+     * @return keeper moves
+     * @throws IllegalArgumentException if a push is not possible
+     */
+    @Override
+    public List<Direction> toMoves(int[] steps) {
+        List<Direction> moves = new ArrayList<>();
+        SearchState state = this.start;
+        for (int step : steps) {
+            final int box = step >>> 2;
+            final Direction dir = DIRECTIONS[step & 3];
+            final int[] pushes = this.macros == null ? new int[]{step} : this.macros.expand(state, box, dir).pushes();
+            for (int push : pushes) {
+                final int from = push >>> 2;
+                final Direction pushDir = DIRECTIONS[push & 3];
+                final int offset = this.board.offset(pushDir);
+                moves.addAll(this.walk(state, from - offset));
+                moves.add(pushDir);
+                state = state.moveBox(this.board, from, from, from + offset);
+            }
+        }
+        return moves;
+    }
+
+    /**
+     * @return pushes made inside macros, each one a state the search did not have to reach on its own
+     */
+    public long savedStates() {
+        return this.savedStates.sum();
+    }
+
+    /**
+     * @param state  boxes and keeper cell
+     * @param target cell the keeper must reach
+     * @return moves of a shortest walk from the keeper to target, without pushes
+     */
+    private List<Direction> walk(SearchState state, int target) {
+        int[] area = new int[this.board.nCells()];
+        byte[] from = new byte[this.board.nCells()];
+        final int size = KeeperAreas.reach(this.board, state, state.keeper(), area, from);
+        boolean found = false;
+        for (int i = 0; i < size && !found; i++) {
+            found = area[i] == target;
+        }
+        if (!found) {
+            throw new IllegalArgumentException("The keeper cannot reach " + this.board.position(target));
+        }
+        List<Direction> path = new ArrayList<>();
+        for (int cell = target; cell != state.keeper(); ) {
+            final Direction dir = DIRECTIONS[from[cell] - 1];
+            path.add(0, dir);
+            cell -= this.board.offset(dir);
+        }
+        return path;
+    }
+}
@@ -0,0 +1,189 @@
+package pt.ipbeja.po2.sokoban2023.solver;
+
+import pt.ipbeja.po2.sokoban2023.model.BoardModel;
+import pt.ipbeja.po2.sokoban2023.model.Direction;
+import pt.ipbeja.po2.sokoban2023.model.Level;
+import pt.ipbeja.po2.sokoban2023.model.Position;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact, immutable search state: keeper cell and sorted box cells of a BoardModel,
+ * with the same Zobrist hash used by SokobanGameModel.stateHash()
+ *
+ * @author Diogo Patusca 23925, João Costa 22890
+ * @version 2023/06/11
+ */
+public final class SearchState {
+    private final int keeper;
+    private final int[] boxes;
+    private final long hash;
+
+    /**
+     * @param keeper keeper cell
+     * @param boxes  box cells, sorted and never changed after this call
+     * @param hash   Zobrist hash of keeper and boxes
+     */
+    SearchState(int keeper, int[] boxes, long hash) {
+        this.keeper = keeper;
+        this.boxes = boxes;
+        this.hash = hash;
+    }
+
+    /**
+     * Creates a state from any box cells
+     *
+     * @param board  the board
+     * @param keeper keeper cell
+     * @param boxes  box cells, in any order
+     * @return the state
+     */
+    public static SearchState of(BoardModel board, int keeper, int[] boxes) {
+        int[] sorted = boxes.clone();
+        Arrays.sort(sorted);
+        long hash = board.keeperKey(keeper);
+        for (int box : sorted) {
+            hash ^= board.boxKey(box);
+        }
+        return new SearchState(keeper, sorted, hash);
+    }
+
+    /**
+     * @param board board of the level
+     * @param level the level
+     * @return initial state of the level
+     */
+    public static SearchState initial(BoardModel board, Level level) {
+        int[] boxes = new int[level.boxesPositions().size()];
+        int i = 0;
+        for (Position pos : level.boxesPositions()) {
+            boxes[i++] = board.cell(pos);
+        }
+        return of(board, board.cell(level.keeperPosition()), boxes);
+    }
+
+    public int keeper() {
+        return this.keeper;
+    }
+
+    public int nBoxes() {
+        return this.boxes.length;
+    }
+
+    /**
+     * @param i box number, boxes are sorted by cell
+     * @return cell of box i
+     */
+    public int box(int i) {
+        return this.boxes[i];
+    }
+
+    /**
+     * @return copy of the sorted box cells
+     */
+    public int[] boxes() {
+        return this.boxes.clone();
+    }
+
+    public long hash() {
+        return this.hash;
+    }
+
+    /**
+     * @param cell cell index
+     * @return true if a box is in cell
+     */
+    public boolean hasBox(int cell) {
+        return Arrays.binarySearch(this.boxes, cell) >= 0;
+    }
+
+    /**
+     * @param board the board
+     * @return true if every box is in an end position
+     */
+    public boolean isSolved(BoardModel board) {
+        for (int box : this.boxes) {
+            if (!board.isEnd(box)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * State with the same boxes and the keeper elsewhere (the box array is shared)
+     *
+     * @param board     the board
+     * @param newKeeper new keeper cell
+     * @return the new state
+     */
+    public SearchState withKeeper(BoardModel board, int newKeeper) {
+        long newHash = this.hash ^ board.keeperKey(this.keeper) ^ board.keeperKey(newKeeper);
+        return new SearchState(newKeeper, this.boxes, newHash);
+    }
+
+    /**
+     * State after a box moves from one cell to another and the keeper moves to newKeeper
+     *
+     * @param board     the board
+     * @param newKeeper new keeper cell
+     * @param from      cell of the moved box
+     * @param to        new cell of the box, must be empty
+     * @return the new state
+     */
+    public SearchState moveBox(BoardModel board, int newKeeper, int from, int to) {
+        int[] newBoxes = this.boxes.clone();
+        int i = Arrays.binarySearch(newBoxes, from);
+        assert (i >= 0);
+        // keep the array sorted by shifting the box to its new place
+        while (i > 0 && newBoxes[i - 1] > to) {
+            newBoxes[i] = newBoxes[i - 1];
+            i--;
+        }
+        while (i < newBoxes.length - 1 && newBoxes[i + 1] < to) {
+            newBoxes[i] = newBoxes[i + 1];
+            i++;
+        }
+        newBoxes[i] = to;
+        long newHash = this.hash
+                ^ board.keeperKey(this.keeper) ^ board.keeperKey(newKeeper)
+                ^ board.boxKey(from) ^ board.boxKey(to);
+        return new SearchState(newKeeper, newBoxes, newHash);
+    }
+
+    /**
+     * Plays moves from this state, following the game rules
+     *
+     * @param board the board
+     * @param moves keeper moves
+     * @return number of pushes, or -1 if a move is not possible
+     */
+    public int countPushes(BoardModel board, List<Direction> moves) {
+        SearchState state = this;
+        int pushes = 0;
+        for (Direction dir : moves) {
+            int next = state.keeper + board.offset(dir);
+            if (board.isWall(next)) return -1;
+            if (state.hasBox(next)) {
+                int boxNext = next + board.offset(dir);
+                if (board.isWall(boxNext) || state.hasBox(boxNext)) return -1;
+                state = state.moveBox(board, next, next, boxNext);
+                pushes++;
+            } else {
+                state = state.withKeeper(board, next);
+            }
+        }
+        return pushes;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof SearchState that)) return false;
+        return this.hash == that.hash && this.keeper == that.keeper && Arrays.equals(this.boxes, that.boxes);
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (this.hash ^ (this.hash >>> 32));
+    }
+}
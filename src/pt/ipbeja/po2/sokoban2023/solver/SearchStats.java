@@ -0,0 +1,70 @@
+package pt.ipbeja.po2.sokoban2023.solver;
+
+import pt.ipbeja.po2.sokoban2023.model.Direction;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts expanded nodes, time and heap use of one search and builds its SolverResult
+ * Safe to use from several search threads
+ *
+ * @author Diogo Patusca 23925, João Costa 22890
+ * @version 2023/06/11
+ */
+class SearchStats {
+    private static final int MEMORY_SAMPLE_MASK = 4095;
+    private final long startNanos;
+    private final long startMemory;
+    private final AtomicLong nodes;
+    private final AtomicLong peakMemory;
+
+    SearchStats() {
+        this.startNanos = System.nanoTime();
+        this.startMemory = usedMemory();
+        this.nodes = new AtomicLong();
+        this.peakMemory = new AtomicLong();
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Counts one expanded node, sampling the heap use every few thousand nodes
+     *
+     * @return number of nodes expanded so far
+     */
+    long expanded() {
+        long count = this.nodes.incrementAndGet();
+        if ((count & MEMORY_SAMPLE_MASK) == 0) {
+            this.sampleMemory();
+        }
+        return count;
+    }
+
+    long nodes() {
+        return this.nodes.get();
+    }
+
+    void sampleMemory() {
+        this.peakMemory.accumulateAndGet(usedMemory() - this.startMemory, Math::max);
+    }
+
+    /**
+     * @param space the searched space, to count the pushes from its start
+     * @param moves solution moves, or null if not solved
+     * @return the solver result
+     */
+    SolverResult result(StateSpace space, List<Direction> moves) {
+        this.sampleMemory();
+        long elapsed = System.nanoTime() - this.startNanos;
+        if (moves == null) {
+            return new SolverResult(false, List.of(), 0, this.nodes.get(), elapsed, this.peakMemory.get());
+        }
+        int pushes = space.start().countPushes(space.board(), moves);
+        assert (pushes >= 0);
+        return new SolverResult(true, List.copyOf(moves), pushes, this.nodes.get(), elapsed, this.peakMemory.get());
+    }
+}
@@ -0,0 +1,38 @@
+package pt.ipbeja.po2.sokoban2023.solver;
+
+import pt.ipbeja.po2.sokoban2023.model.BoardModel;
+
+/**
+ * Sum, over the boxes, of the Manhattan distance to the nearest end position
+ * Each push moves one box one position, so this never exceeds the pushes (or moves) left
+ *
+ * @author Diogo Patusca 23925, João Costa 22890
+ * @version 2023/06/11
+ */
+public class SimpleLowerBound implements Heuristic {
+    private final BoardModel board;
+
+    public SimpleLowerBound(BoardModel board) {
+        this.board = board;
+    }
+
+    @Override
+    public int estimate(SearchState state) {
+        int total = 0;
+        for (int i = 0; i < state.nBoxes(); i++) {
+            final int box = state.box(i);
+            if (this.board.isDeadSquare(box)) return UNSOLVABLE;
+            final int line = this.board.lineOf(box);
+            final int col = this.board.colOf(box);
+            int nearest = Integer.MAX_VALUE;
+            for (int end = 0; end < this.board.nEnds(); end++) {
+                final int endCell = this.board.endCell(end);
+                final int distance = Math.abs(this.board.lineOf(endCell) - line) + Math.abs(this.board.colOf(endCell) - col);
+                nearest = Math.min(nearest, distance);
+            }
+            if (nearest == Integer.MAX_VALUE) return UNSOLVABLE;
+            total += nearest;
+        }
+        return total;
+    }
+}
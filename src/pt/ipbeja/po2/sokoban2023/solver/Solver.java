@@ -0,0 +1,17 @@
+package pt.ipbeja.po2.sokoban2023.solver;
+
+import pt.ipbeja.po2.sokoban2023.model.Level;
+
+/**
+ * Finds a sequence of keeper moves that solves a level
+ *
+ * @author Diogo Patusca 23925, João Costa 22890
+ * @version 2023/06/11
+ */
+public interface Solver {
+    /**
+     * @param level level to solve, in its initial state
+     * @return the solution, if any, and the search statistics
+     */
+    SolverResult solve(Level level);
+}
@@ -0,0 +1,87 @@
+package pt.ipbeja.po2.sokoban2023.solver;
+
+import pt.ipbeja.po2.sokoban2023.model.BoardModel;
+import pt.ipbeja.po2.sokoban2023.model.Level;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Runs the solvers on level files and prints their results, one line per level and solver
+ * The pattern database of each level is saved next to its file, so later runs only load it
+ * Usage: SolverBenchmark [level file or directory ...] (default: levelFiles)
+ *
+ * @author Diogo Patusca 23925, João Costa 22890
+ * @version 2023/06/11
+ */
+public class SolverBenchmark {
+
+    /**
+     * @param args level files or directories with level files
+     * @throws IOException if a level file could not be read
+     */
+    public static void main(String[] args) throws IOException {
+        // each level with the directory of its file, where its pattern database is kept
+        Map<Level, Path> levels = new LinkedHashMap<>();
+        for (String arg : args.length == 0 ? new String[]{"levelFiles"} : args) {
+            Path path = Path.of(arg).toAbsolutePath();
+            Path directory = Files.isDirectory(path) ? path : path.getParent();
+            for (Level level : readLevels(path)) {
+                levels.put(level, directory);
+            }
+        }
+
+        Map<String, Solver> solvers = new LinkedHashMap<>();
+        solvers.put("AStar(moves)", new AStarSolver());
+        solvers.put("AStar(pushes)", AStarSolver.pushSolver());
+        for (int threads = 1; threads <= Runtime.getRuntime().availableProcessors(); threads *= 2) {
+            solvers.put("Parallel(" + threads + ")", new ParallelSolver(threads, AStarSolver.DEFAULT_MAX_NODES));
+        }
+        solvers.put("Bidirectional", new BidirectionalSolver());
+        solvers.put("ExternalMemory", new ExternalMemorySolver());
+
+        for (Map.Entry<Level, Path> entry : levels.entrySet()) {
+            Level level = entry.getKey();
+            for (Map.Entry<String, Solver> solver : solvers.entrySet()) {
+                System.out.println(level.levelName() + " " + solver.getKey() + " " + solver.getValue().solve(level));
+            }
+
+            BoardModel board = new BoardModel(level.boardContent());
+            PushSpace macroSpace = new PushSpace(board, level, true);
+            SolverResult macroResult = AStarSolver.macroSolver().solve(macroSpace, new MatchingLowerBound(board));
+            System.out.println(level.levelName() + " AStar(macros) " + macroResult
+                    + " savedStates=" + macroSpace.savedStates());
+
+            final long start = System.nanoTime();
+            PatternDatabase database = PatternDatabase.forLevel(board, level, entry.getValue());
+            System.out.printf("%s PatternDatabase %s in %.1fms%n", level.levelName(),
+                    database.isMapped() ? "loaded" : "computed", (System.nanoTime() - start) / 1e6);
+            Solver pdbSolver = new AStarSolver(
+                    b -> new PatternDatabaseHeuristic(b, database, PatternDatabaseHeuristic.Combination.MAX_WITH_MATCHING),
+                    AStarSolver.DEFAULT_MAX_NODES);
+            System.out.println(level.levelName() + " AStar(pdb) " + pdbSolver.solve(level));
+        }
+    }
+
+    /**
+     * @param path level file or directory
+     * @return the levels in path, sorted by file name
+     * @throws IOException if a level file could not be read
+     */
+    static List<Level> readLevels(Path path) throws IOException {
+        if (!Files.isDirectory(path)) return List.of(Level.load(path));
+        List<Level> levels = new ArrayList<>();
+        try (Stream<Path> files = Files.list(path)) {
+            for (Path file : files.filter(f -> f.toString().endsWith(".txt")).sorted().toList()) {
+                levels.add(Level.load(file));
+            }
+        }
+        return levels;
+    }
+}
@@ -0,0 +1,35 @@
+package pt.ipbeja.po2.sokoban2023.solver;
+
+import pt.ipbeja.po2.sokoban2023.model.Direction;
+
+import java.util.List;
+
+/**
+ * Result of a solver run
+ *
+ * @param solved          true if a solution was found
+ * @param moves           keeper moves of the solution, empty if not solved
+ * @param pushes          number of pushes in the solution
+ * @param nodesExpanded   number of states expanded by the search
+ * @param elapsedNanos    search time
+ * @param peakMemoryBytes highest heap use seen during the search, above the heap use at the start
+ * @author Diogo Patusca 23925, João Costa 22890
+ * @version 2023/06/11
+ */
+public record SolverResult(boolean solved, List<Direction> moves, int pushes,
+                           long nodesExpanded, long elapsedNanos, long peakMemoryBytes) {
+
+    /**
+     * @return expanded states per second
+     */
+    public double nodesPerSecond() {
+        return this.elapsedNanos == 0 ? 0 : this.nodesExpanded * 1e9 / this.elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s moves=%d pushes=%d nodes=%d time=%.1fms nodes/s=%.0f peakMemory=%dKB",
+                this.solved ? "solved" : "not solved", this.moves.size(), this.pushes, this.nodesExpanded,
+                this.elapsedNanos / 1e6, this.nodesPerSecond(), this.peakMemoryBytes / 1024);
+    }
+}
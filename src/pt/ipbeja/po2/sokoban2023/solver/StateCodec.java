@@ -0,0 +1,95 @@
+package pt.ipbeja.po2.sokoban2023.solver;
+
+import pt.ipbeja.po2.sokoban2023.model.BoardModel;
+
+import java.util.Arrays;
+
+/**
+ * Packs the boxes of a state in a bitset, one bit per cell that is not a wall or a dead square
+ * Used to keep states in primitive arrays and files instead of objects
+ * States with a box in a dead square can never be solved and cannot be packed
+ *
+ * @author Diogo Patusca 23925, João Costa 22890
+ * @version 2023/06/11
+ */
+final class StateCodec {
+    private final int[] index;
+    private final int[] cells;
+    private final int words;
+
+    StateCodec(BoardModel board) {
+        this.index = new int[board.nCells()];
+        int nCells = 0;
+        for (int cell = 0; cell < board.nCells(); cell++) {
+            this.index[cell] = board.isWall(cell) || board.isDeadSquare(cell) ? -1 : nCells++;
+        }
+        this.cells = new int[nCells];
+        for (int cell = 0; cell < board.nCells(); cell++) {
+            if (this.index[cell] >= 0) this.cells[this.index[cell]] = cell;
+        }
+        this.words = (nCells + 63) / 64;
+    }
+
+    /**
+     * @return number of long words of a bitset
+     */
+    int words() {
+        return this.words;
+    }
+
+    /**
+     * @return number of cells with a bit
+     */
+    int nCells() {
+        return this.cells.length;
+    }
+
+    /**
+     * @param cell cell index
+     * @return bit number of cell, or -1 for walls and dead squares
+     */
+    int bitOf(int cell) {
+        return this.index[cell];
+    }
+
+    /**
+     * @param bit bit number
+     * @return cell of bit
+     */
+    int cell(int bit) {
+        return this.cells[bit];
+    }
+
+    /**
+     * Writes the box bitset of state in dst, from offset
+     *
+     * @return false if a box is in a dead square
+     */
+    boolean encode(SearchState state, long[] dst, int offset) {
+        Arrays.fill(dst, offset, offset + this.words, 0L);
+        for (int i = 0; i < state.nBoxes(); i++) {
+            final int bit = this.index[state.box(i)];
+            if (bit < 0) return false;
+            dst[offset + (bit >>> 6)] |= 1L << bit;
+        }
+        return true;
+    }
+
+    /**
+     * @param src    array with a bitset
+     * @param offset first word of the bitset
+     * @param nBoxes number of boxes in the bitset
+     * @return box cells, sorted
+     */
+    int[] decode(long[] src, int offset, int nBoxes) {
+        int[] boxes = new int[nBoxes];
+        int i = 0;
+        for (int word = 0; word < this.words; word++) {
+            for (long bits = src[offset + word]; bits != 0; bits &= bits - 1) {
+                boxes[i++] = this.cells[word * 64 + Long.numberOfTrailingZeros(bits)];
+            }
+        }
+        assert (i == nBoxes);
+        return boxes;
+    }
+}
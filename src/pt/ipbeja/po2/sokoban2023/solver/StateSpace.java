@@ -0,0 +1,59 @@
+package pt.ipbeja.po2.sokoban2023.solver;
+
+import pt.ipbeja.po2.sokoban2023.model.BoardModel;
+import pt.ipbeja.po2.sokoban2023.model.Direction;
+
+import java.util.List;
+
+/**
+ * Search graph of a level: states, successors and how a path of steps becomes keeper moves
+ * Every step costs 1
+ *
+ * @author Diogo Patusca 23925, João Costa 22890
+ * @version 2023/06/11
+ */
+public interface StateSpace {
+
+    /**
+     * Receives the successors of a state
+     */
+    interface SuccessorSink {
+        /**
+         * @param next state after the step
+         * @param step step code, only meaningful to the state space that made it
+         */
+        void accept(SearchState next, int step);
+    }
+
+    BoardModel board();
+
+    SearchState initial();
+
+    /**
+     * State where the moves of toMoves start; differs from initial() when the space
+     * changes the keeper cell of its states
+     *
+     * @return the state of the level before any move
+     */
+    default SearchState start() {
+        return this.initial();
+    }
+
+    boolean isGoal(SearchState state);
+
+    /**
+     * Sends every successor of state to sink
+     *
+     * @param state state to expand
+     * @param sink  receiver of the successors
+     */
+    void successors(SearchState state, SuccessorSink sink);
+
+    /**
+     * Turns a path of steps from the initial state into keeper moves
+     *
+     * @param steps step codes, in order
+     * @return keeper moves
+     */
+    List<Direction> toMoves(int[] steps);
+}
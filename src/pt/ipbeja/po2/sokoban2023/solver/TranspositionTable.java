@@ -0,0 +1,218 @@
+package pt.ipbeja.po2.sokoban2023.solver;
+
+import pt.ipbeja.po2.sokoban2023.model.BoardModel;
+
+/**
+ * Table of visited states, each with an int value (the best cost found by the search)
+ * The states are packed in one long array with open addressing:
+ * each slot has a header word (keeper cell and value) followed by the StateCodec bitset of the box cells,
+ * so a state takes a few words instead of several objects
+ * States with a box in a dead square can never be solved and are never stored
+ * Slots are found from the 64 bit state hash; the table doubles while it fits in the byte budget
+ * and then frees room with its EvictionPolicy
+ * Not thread safe
+ *
+ * @author Diogo Patusca 23925, João Costa 22890
+ * @version 2023/06/11
+ */
+public class TranspositionTable {
+    /**
+     * Value returned for a state that is not in the table
+     */
+    public static final int MISSING = -1;
+    private static final int INITIAL_SLOTS = 1 << 10;
+    private static final int MAX_PROBES = 64;
+    private final BoardModel board;
+    private final StateCodec codec;
+    private final int slotWords;
+    private final int maxSlots;
+    private final EvictionPolicy policy;
+    private final long[] key;
+    private long[] table;
+    private int mask;
+    private int size;
+    private long evictions;
+    private long rejections;
+
+    /**
+     * @param board      board of the states
+     * @param byteBudget the table never takes more than this many bytes
+     * @param policy     what to do when the table is full
+     */
+    public TranspositionTable(BoardModel board, long byteBudget, EvictionPolicy policy) {
+        this.board = board;
+        this.policy = policy;
+        this.codec = new StateCodec(board);
+        this.slotWords = 1 + this.codec.words();
+        this.key = new long[this.slotWords - 1];
+
+        // a power of two number of slots, within the budget and the maximum array size
+        final long budgetSlots = Math.min(byteBudget / (this.slotWords * 8L), (Integer.MAX_VALUE - 8) / this.slotWords);
+        if (budgetSlots < MAX_PROBES) {
+            throw new IllegalArgumentException("A budget of " + byteBudget + " bytes is too small for this board");
+        }
+        this.maxSlots = (int) Long.highestOneBit(budgetSlots);
+        final int slots = Math.min(INITIAL_SLOTS, this.maxSlots);
+        this.table = new long[slots * this.slotWords];
+        this.mask = slots - 1;
+    }
+
+    /**
+     * @param state search state
+     * @return value of state, or MISSING
+     */
+    public int get(SearchState state) {
+        if (!this.codec.encode(state, this.key, 0)) return MISSING;
+        final int keeperTag = state.keeper() + 1;
+        int slot = (int) state.hash() & this.mask;
+        for (int probe = 0; probe < MAX_PROBES; probe++, slot = (slot + 1) & this.mask) {
+            final long header = this.table[slot * this.slotWords];
+            if (header == 0) return MISSING;
+            if (this.matches(slot, keeperTag)) return (int) header;
+        }
+        return MISSING;
+    }
+
+    /**
+     * Stores a state, or changes its value if it is already in the table
+     *
+     * @param state search state
+     * @param value value of the state, not negative
+     * @return false if the table was full and the state was not stored
+     */
+    public boolean put(SearchState state, int value) {
+        if (value < 0) throw new IllegalArgumentException("Negative value " + value);
+        if (this.size >= (this.mask + 1) / 4 * 3) this.grow();
+        if (!this.codec.encode(state, this.key, 0)) {
+            this.rejections++;
+            return false;
+        }
+        final int keeperTag = state.keeper() + 1;
+        while (true) {
+            final int home = (int) state.hash() & this.mask;
+            int victim = home;
+            int victimValue = -1;
+            int slot = home;
+            for (int probe = 0; probe < MAX_PROBES; probe++, slot = (slot + 1) & this.mask) {
+                final long header = this.table[slot * this.slotWords];
+                if (header == 0) {
+                    this.write(slot, keeperTag, value);
+                    this.size++;
+                    return true;
+                }
+                if (this.matches(slot, keeperTag)) {
+                    this.write(slot, keeperTag, value);
+                    return true;
+                }
+                if ((int) header > victimValue) {
+                    victim = slot;
+                    victimValue = (int) header;
+                }
+            }
+            // all slots of this state are taken
+            if (this.grow()) continue;
+            switch (this.policy) {
+                case KEEP_EXISTING -> {
+                    this.rejections++;
+                    return false;
+                }
+                case REPLACE_DEEPEST -> {
+                    if (victimValue < value) {
+                        this.rejections++;
+                        return false;
+                    }
+                    this.write(victim, keeperTag, value);
+                }
+                case ALWAYS_REPLACE -> this.write(home, keeperTag, value);
+            }
+            this.evictions++;
+            return true;
+        }
+    }
+
+    /**
+     * @return number of states in the table
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * @return number of slots
+     */
+    public int capacity() {
+        return this.mask + 1;
+    }
+
+    /**
+     * @return bytes taken by the slots
+     */
+    public long bytes() {
+        return this.table.length * 8L;
+    }
+
+    /**
+     * @return number of states replaced by other states
+     */
+    public long evictions() {
+        return this.evictions;
+    }
+
+    /**
+     * @return number of states not stored because the table was full
+     */
+    public long rejections() {
+        return this.rejections;
+    }
+
+    private boolean matches(int slot, int keeperTag) {
+        final int base = slot * this.slotWords;
+        if ((int) (this.table[base] >>> 32) != keeperTag) return false;
+        for (int word = 0; word < this.key.length; word++) {
+            if (this.table[base + 1 + word] != this.key[word]) return false;
+        }
+        return true;
+    }
+
+    private void write(int slot, int keeperTag, int value) {
+        final int base = slot * this.slotWords;
+        this.table[base] = ((long) keeperTag << 32) | value;
+        System.arraycopy(this.key, 0, this.table, base + 1, this.key.length);
+    }
+
+    /**
+     * Doubles the number of slots, if the budget allows it
+     * The hash is not stored, so it is computed again from the keeper and the boxes of each slot
+     *
+     * @return true if the table grew
+     */
+    private boolean grow() {
+        final int capacity = this.mask + 1;
+        if (capacity >= this.maxSlots) return false;
+        final long[] old = this.table;
+        this.table = new long[capacity * 2 * this.slotWords];
+        this.mask = capacity * 2 - 1;
+        final int oldSize = this.size;
+        this.size = 0;
+        for (int base = 0; base < old.length; base += this.slotWords) {
+            if (old[base] == 0) continue;
+            long hash = this.board.keeperKey((int) (old[base] >>> 32) - 1);
+            for (int word = 1; word < this.slotWords; word++) {
+                for (long bits = old[base + word]; bits != 0; bits &= bits - 1) {
+                    hash ^= this.board.boxKey(this.codec.cell((word - 1) * 64 + Long.numberOfTrailingZeros(bits)));
+                }
+            }
+            int slot = (int) hash & this.mask;
+            for (int probe = 0; probe < MAX_PROBES; probe++, slot = (slot + 1) & this.mask) {
+                if (this.table[slot * this.slotWords] == 0) {
+                    System.arraycopy(old, base, this.table, slot * this.slotWords, this.slotWords);
+                    this.size++;
+                    break;
+                }
+            }
+        }
+        // a state that finds no free slot in its probe window is dropped
+        this.evictions += oldSize - this.size;
+        return true;
+    }
+}
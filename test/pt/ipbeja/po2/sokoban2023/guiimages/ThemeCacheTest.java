@@ -0,0 +1,42 @@
+package pt.ipbeja.po2.sokoban2023.guiimages;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ThemeCacheTest {
+
+    @Test
+    void testLeastRecentlyUsedIsDropped() {
+        // only the cached environments are checked, never their images, so no graphics are needed
+        ThemeCache.setMaxThemes(1);
+        ThemeCache.load("Pokemon/");
+        assertEquals(List.of("Pokemon/"), ThemeCache.cachedThemes());
+
+        ThemeCache.setMaxThemes(2);
+        ThemeCache.load("Super_Mario/");
+        ThemeCache.load("Pokemon/");
+        assertEquals(List.of("Super_Mario/", "Pokemon/"), ThemeCache.cachedThemes());
+        ThemeCache.load("Police_Station/");
+        assertEquals(List.of("Pokemon/", "Police_Station/"), ThemeCache.cachedThemes());
+
+        // a full cache is not preloaded, the environments in use stay
+        ThemeCache.preloadAll();
+        assertEquals(List.of("Pokemon/", "Police_Station/"), ThemeCache.cachedThemes());
+        ThemeCache.setMaxThemes(3);
+        ThemeCache.preloadAll();
+        assertEquals(List.of("Pokemon/", "Police_Station/", "Default/"), ThemeCache.cachedThemes());
+
+        // the environment requested is kept with any limit
+        ThemeCache.setMaxThemes(1);
+        assertEquals(List.of("Default/"), ThemeCache.cachedThemes());
+        ThemeCache.load("Pokemon/");
+        assertEquals(List.of("Pokemon/"), ThemeCache.cachedThemes());
+
+        ThemeCache.setMaxThemes(0);
+        ThemeCache.preloadAll();
+        assertEquals(4, ThemeCache.cachedThemes().size());
+    }
+}
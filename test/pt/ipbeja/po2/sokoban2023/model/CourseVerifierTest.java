@@ -0,0 +1,65 @@
+package pt.ipbeja.po2.sokoban2023.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CourseVerifierTest {
+
+    @Test
+    void testBundledCoursesPass() throws IOException {
+        List<CourseVerifier.Report> reports = CourseVerifier.verifyAll(Path.of("Courses"), Path.of("levelFiles"));
+        assertEquals(5, reports.size());
+        for (CourseVerifier.Report report : reports) {
+            assertTrue(report.passed(), report.toString());
+            assertTrue(report.pushes() > 0 && report.pushes() <= report.moves(), report.toString());
+        }
+    }
+
+    @Test
+    void testParseUndoRedoSeek() {
+        Course course = Course.fromLines(List.of(
+                "Moves Level1",
+                "(3, F)->(3, E)",
+                "UNDO (3, E)->(3, F)",
+                "REDO (3, F)->(3, E)",
+                "SEEK 0",
+                ""));
+        assertEquals("Level1", course.levelName());
+        assertEquals(4, course.commands().size());
+        assertEquals(Direction.LEFT, course.commands().get(0).direction());
+        assertEquals(Course.Type.UNDO, course.commands().get(1).type());
+        assertEquals(Course.Type.REDO, course.commands().get(2).type());
+        assertEquals(0, course.commands().get(3).moveIndex());
+        assertThrows(IllegalArgumentException.class, () -> Course.fromLines(List.of("(3, F)->(5, F)")));
+
+        CourseVerifier.Report report = CourseVerifier.verify("course", course, new Level());
+        // every command is legal, but no box was stored
+        assertFalse(report.passed());
+        assertEquals("not all boxes stored", report.problem());
+        assertEquals(3, report.moves()); // the undo is a move too
+    }
+
+    @Test
+    void testIllegalCourseFails() {
+        // the keeper is at (3, 5), not (3, 4)
+        Course wrongStart = Course.fromLines(List.of("Moves Level1", "(3, E)->(3, D)"));
+        CourseVerifier.Report report = CourseVerifier.verify("course", wrongStart, new Level());
+        assertFalse(report.passed());
+        assertTrue(report.problem().startsWith("line 2"));
+
+        // a wall above (3, 5)
+        Course intoWall = Course.fromLines(List.of("(3, F)->(2, F)"));
+        assertFalse(CourseVerifier.verify("course", intoWall, new Level()).passed());
+
+        Course nothingToRedo = Course.fromLines(List.of("REDO"));
+        assertEquals("line 1: no move to redo", CourseVerifier.verify("course", nothingToRedo, new Level()).problem());
+    }
+}
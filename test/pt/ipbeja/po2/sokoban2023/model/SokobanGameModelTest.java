@@ -2,9 +2,16 @@ package pt.ipbeja.po2.sokoban2023.model;
 
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class SokobanGameModelTest {
@@ -54,7 +61,16 @@ class SokobanGameModelTest {
 
         SokobanGameModel sokoban = new SokobanGameModel(level);
 
-        sokoban.registerView(messageToUI -> {
+        int[] completedEvents = {0};
+        sokoban.registerView(new SokobanView() {
+            @Override
+            public void update(MessageToUI messageToUI) {
+            }
+
+            @Override
+            public void levelCompleted() {
+                completedEvents[0]++;
+            }
         });
         //moves keeper to a position where if he moves right all boxes will be stored
         Position pos = new Position(3, 6);
@@ -70,6 +86,8 @@ class SokobanGameModelTest {
         assertTrue(sokoban.boxInPos(new Position(3, 3))); //Check if position 3,3 has a box
         assertTrue(sokoban.boxInPos(new Position(3, 4)));  //Check if position 3,4 has a box
         assertTrue(sokoban.allBoxesAreStored());
+        assertEquals(2, sokoban.getBoxesOnGoal());
+        assertEquals(1, completedEvents[0]);
     }
 
     @Test
@@ -106,5 +124,330 @@ class SokobanGameModelTest {
         });
         sokoban.moveKeeper(Direction.LEFT);
     }
-}
 
+    @Test
+    void testBoardBorderIsWall() {
+        BoardModel board = new BoardModel(new Level().boardContent());
+
+        assertEquals(6, board.nLines());
+        assertEquals(8, board.nCols());
+        assertEquals(PositionContent.END, board.getPosContent(new Position(3, 3)));
+        // positions just outside the board are walls
+        assertEquals(PositionContent.WALL, board.getPosContent(new Position(-1, 0)));
+        assertEquals(PositionContent.WALL, board.getPosContent(new Position(1, board.nCols())));
+        assertEquals(PositionContent.WALL, board.getPosContent(new Position(board.nLines(), 7)));
+    }
+
+    @Test
+    void testPackedPositions() {
+        BoardModel board = new BoardModel(new Level().boardContent());
+        Position pos = new Position(3, 5);
+
+        assertEquals(pos, Position.unpack(pos.pack()));
+        assertEquals(pos.move(Direction.UP).pack(), Position.packedMove(pos.pack(), Direction.UP));
+        assertEquals(new Position(-1, -1), Position.unpack(Position.pack(-1, -1)));
+        // the board hands out one shared instance per cell
+        int cell = board.cell(pos);
+        assertSame(board.position(cell), board.position(3, 5));
+        assertEquals(pos.move(Direction.LEFT), board.position(cell + board.offset(Direction.LEFT)));
+        assertEquals(pos.move(Direction.DOWN), board.position(cell + board.offset(Direction.DOWN)));
+    }
+
+    @Test
+    void testStateHash() {
+        Level level = new Level();
+        SokobanGameModel sokoban = new SokobanGameModel(level);
+        sokoban.registerView(messageToUI -> {
+        });
+        long initialHash = sokoban.stateHash();
+
+        // walking away and back gives the same state
+        sokoban.moveKeeper(Direction.RIGHT);
+        assertNotEquals(initialHash, sokoban.stateHash());
+        sokoban.moveKeeper(Direction.LEFT);
+        assertEquals(initialHash, sokoban.stateHash());
+
+        // pushing a box up gives the same hash as a game that started in that state
+        sokoban.moveKeeper(Direction.LEFT);
+        sokoban.moveKeeper(Direction.DOWN);
+        sokoban.moveKeeper(Direction.LEFT);
+        long beforePush = sokoban.stateHash();
+        sokoban.moveKeeper(Direction.UP);
+        assertNotEquals(beforePush, sokoban.stateHash());
+        SokobanGameModel other = new SokobanGameModel(new Level(level.levelName(), new Position(3, 3),
+                Set.of(new Position(3, 2), new Position(2, 3)), level.boardContent()));
+        assertEquals(other.stateHash(), sokoban.stateHash());
+    }
+
+    @Test
+    void testUndoRedoPush() {
+        Level level = new Level();
+        SokobanGameModel sokoban = new SokobanGameModel(level);
+        sokoban.registerView(messageToUI -> {
+        });
+        long initialHash = sokoban.stateHash();
+
+        // push box (3, 3) up
+        sokoban.moveKeeper(Direction.LEFT);
+        sokoban.moveKeeper(Direction.DOWN);
+        sokoban.moveKeeper(Direction.LEFT);
+        sokoban.moveKeeper(Direction.UP);
+        long pushedHash = sokoban.stateHash();
+        assertTrue(sokoban.boxInPos(new Position(2, 3)));
+        assertFalse(sokoban.canRedo());
+
+        // undo pulls the box back
+        assertTrue(sokoban.undo());
+        assertEquals(new Position(4, 3), sokoban.keeper().getPosition());
+        assertTrue(sokoban.boxInPos(new Position(3, 3)));
+        assertFalse(sokoban.boxInPos(new Position(2, 3)));
+        assertTrue(sokoban.canRedo());
+
+        // redo pushes it again
+        assertTrue(sokoban.redo());
+        assertEquals(pushedHash, sokoban.stateHash());
+
+        while (sokoban.canUndo()) sokoban.undo();
+        assertEquals(initialHash, sokoban.stateHash());
+        assertFalse(sokoban.undo());
+
+        // a new move drops the moves that could be redone
+        sokoban.moveKeeper(Direction.RIGHT);
+        assertFalse(sokoban.canRedo());
+    }
+
+    @Test
+    void testSeek() {
+        Level level = new Level();
+        SokobanGameModel sokoban = new SokobanGameModel(level);
+        int[] updates = {0};
+        sokoban.registerView(messageToUI -> updates[0]++);
+
+        // push box (3, 3) up, then walk back and forth past a few checkpoints
+        List<Long> hashes = new ArrayList<>();
+        hashes.add(sokoban.stateHash());
+        for (Direction dir : List.of(Direction.LEFT, Direction.DOWN, Direction.LEFT, Direction.UP)) {
+            sokoban.moveKeeper(dir);
+            hashes.add(sokoban.stateHash());
+        }
+        for (int i = 0; i < 300; i++) {
+            sokoban.moveKeeper(i % 2 == 0 ? Direction.DOWN : Direction.UP);
+            hashes.add(sokoban.stateHash());
+        }
+        assertEquals(304, sokoban.getHistorySize());
+
+        for (int moveIndex : List.of(2, 300, 0, 257, 256, 304, 3, 4)) {
+            updates[0] = 0;
+            sokoban.seek(moveIndex);
+            assertEquals(1, updates[0]);
+            assertEquals(moveIndex, sokoban.getMoveIndex());
+            assertEquals(hashes.get(moveIndex), sokoban.stateHash());
+        }
+        assertTrue(sokoban.boxInPos(new Position(2, 3)));
+        sokoban.seek(3);
+        assertTrue(sokoban.boxInPos(new Position(3, 3)));
+
+        // a new move after seeking back replaces the rest of the history
+        sokoban.moveKeeper(Direction.RIGHT);
+        assertEquals(4, sokoban.getHistorySize());
+        sokoban.seek(0);
+        assertEquals(hashes.get(0), sokoban.stateHash());
+    }
+
+    @Test
+    void testLevelCompletedOncePerGame() {
+        SokobanGameModel sokoban = new SokobanGameModel(new Level("Line", new Position(1, 1),
+                Set.of(new Position(1, 2)), """
+                WWWWW
+                WFFEW
+                WWWWW"""));
+        int[] completedEvents = {0};
+        sokoban.registerView(new SokobanView() {
+            @Override
+            public void update(MessageToUI messageToUI) {
+            }
+
+            @Override
+            public void levelCompleted() {
+                completedEvents[0]++;
+            }
+        });
+        sokoban.moveKeeper(Direction.RIGHT);
+        assertEquals(1, completedEvents[0]);
+
+        // back to the completed state of the same game
+        sokoban.seek(0);
+        sokoban.seek(1);
+        sokoban.undo();
+        sokoban.redo();
+        assertTrue(sokoban.allBoxesAreStored());
+        assertEquals(1, completedEvents[0]);
+
+        sokoban.reset(); // a new game
+        sokoban.moveKeeper(Direction.RIGHT);
+        assertEquals(2, completedEvents[0]);
+    }
+
+    @Test
+    void testReset() {
+        SokobanGameModel sokoban = new SokobanGameModel(new Level());
+        final long initialHash = sokoban.stateHash();
+        List<MessageToUI> updates = new ArrayList<>();
+        sokoban.registerView(updates::add);
+
+        // push box (3, 3) up and walk away
+        for (Direction dir : List.of(Direction.LEFT, Direction.DOWN, Direction.LEFT, Direction.UP, Direction.DOWN)) {
+            sokoban.moveKeeper(dir);
+        }
+        sokoban.undo();
+        updates.clear();
+        sokoban.reset();
+
+        assertEquals(initialHash, sokoban.stateHash());
+        assertFalse(sokoban.canUndo());
+        assertFalse(sokoban.canRedo());
+        assertEquals(0, sokoban.getHistorySize());
+        assertTrue(sokoban.getMovesList().isEmpty());
+        // one update with the old and new keeper and box positions only
+        assertEquals(1, updates.size());
+        assertEquals(Set.of(new Position(3, 5), new Position(3, 3), new Position(2, 3)),
+                Set.copyOf(updates.get(0).positions()));
+    }
+
+    @Test
+    void testHeadlessGameFromLevelFile() throws IOException {
+        Level level = Level.load(Path.of("levelFiles", "Level1.txt"));
+        assertEquals("Level1", level.levelName());
+        assertEquals(new Level().keeperPosition(), level.keeperPosition());
+        assertEquals(new Level().boxesPositions(), level.boxesPositions());
+        assertEquals(new Level().boardContent(), level.boardContent());
+
+        // no view registered
+        SokobanGameModel sokoban = new SokobanGameModel(level);
+        assertTrue(sokoban.moveKeeper(Direction.LEFT));
+        assertEquals(new Position(3, 4), sokoban.getKeeperPosition());
+        assertEquals(2, sokoban.getBoxesPositions().size());
+    }
+
+    @Test
+    void testDeadSquares() {
+        BoardModel board = new BoardModel(new Level().boardContent());
+        assertTrue(board.isDeadSquare(new Position(4, 1))); // corner
+        assertTrue(board.isDeadSquare(new Position(1, 3))); // corner
+        assertTrue(board.isDeadSquare(new Position(4, 3))); // along the bottom wall
+        assertTrue(board.isDeadSquare(new Position(3, 6))); // along the right wall
+        assertFalse(board.isDeadSquare(new Position(3, 2)));
+        assertFalse(board.isDeadSquare(new Position(3, 5)));
+        assertFalse(board.isDeadSquare(new Position(2, 3)));
+        assertFalse(board.isDeadSquare(new Position(3, 3))); // end position
+        assertFalse(board.isDeadSquare(new Position(0, 2))); // wall
+    }
+
+    @Test
+    void testPositionLost() {
+        SokobanGameModel sokoban = new SokobanGameModel(new Level());
+        int[] lostEvents = {0};
+        sokoban.registerView(new SokobanView() {
+            @Override
+            public void update(MessageToUI messageToUI) {
+            }
+
+            @Override
+            public void positionLost() {
+                lostEvents[0]++;
+            }
+        });
+
+        sokoban.moveKeeper(Direction.LEFT);
+        sokoban.moveKeeper(Direction.UP);
+        sokoban.moveKeeper(Direction.LEFT);
+        assertFalse(sokoban.isLost());
+        // push box (3, 3) down against the wall
+        sokoban.moveKeeper(Direction.DOWN);
+        assertTrue(sokoban.isLost());
+        assertEquals(1, lostEvents[0]);
+
+        sokoban.undo();
+        assertFalse(sokoban.isLost());
+    }
+
+    @Test
+    void testFreezeDeadlock() {
+        SokobanGameModel sokoban = new SokobanGameModel(new Level("Freeze", new Position(3, 5),
+                Set.of(new Position(2, 2), new Position(2, 3), new Position(3, 2), new Position(3, 4)), """
+                WWWWWWWW
+                WFFFFFFW
+                WFFFFFFW
+                WFFFFFFW
+                WFEEEEFW
+                WFFFFFFW
+                WWWWWWWW"""));
+        assertFalse(sokoban.isLost());
+        // push box (3, 4) left, closing a square of four boxes that can never move again
+        sokoban.moveKeeper(Direction.LEFT);
+        assertTrue(sokoban.isLost());
+        sokoban.undo();
+        assertFalse(sokoban.isLost());
+        sokoban.redo();
+        assertTrue(sokoban.isLost());
+        sokoban.seek(0);
+        assertFalse(sokoban.isLost());
+        sokoban.moveKeeper(Direction.UP); // replaces the lost move
+        assertFalse(sokoban.isLost());
+        sokoban.moveKeeper(Direction.LEFT);
+        assertFalse(sokoban.isLost());
+    }
+
+    @Test
+    void testFailedMoveKeepsDeadlock() {
+        SokobanGameModel sokoban = new SokobanGameModel(new Level("Frozen", new Position(3, 1),
+                Set.of(new Position(1, 3), new Position(2, 4)), """
+                WWWWWWWW
+                WEFFFFEW
+                WFFFFFFW
+                WFFFFFFW
+                WWWWWWWW"""));
+        sokoban.moveKeeper(Direction.RIGHT);
+        sokoban.moveKeeper(Direction.RIGHT);
+        sokoban.moveKeeper(Direction.RIGHT);
+        // push box (2, 4) up next to box (1, 3), both frozen against the top wall
+        sokoban.moveKeeper(Direction.UP);
+        assertTrue(sokoban.isLost());
+        // past the second checkpoint, so seeking back restores a checkpoint and replays moves without pushes
+        for (int i = 4; i < 604; i += 2) {
+            sokoban.moveKeeper(Direction.DOWN);
+            sokoban.moveKeeper(Direction.UP);
+        }
+        sokoban.moveKeeper(Direction.DOWN);
+        assertEquals(605, sokoban.getHistorySize());
+
+        sokoban.seek(3);
+        assertFalse(sokoban.isLost());
+        assertFalse(sokoban.moveKeeper(Direction.DOWN)); // into the wall, the history is kept
+        sokoban.seek(605);
+        assertTrue(sokoban.isLost());
+
+        sokoban.seek(3);
+        sokoban.moveKeeper(Direction.LEFT); // replaces the lost moves
+        assertFalse(sokoban.isLost());
+        assertEquals(4, sokoban.getHistorySize());
+    }
+
+    @Test
+    void testCorralDeadlock() {
+        SokobanGameModel sokoban = new SokobanGameModel(new Level("Corral", new Position(3, 3),
+                Set.of(new Position(2, 3), new Position(2, 4)), """
+                WWWWWWW
+                WEFEWWW
+                WWWFFFW
+                WWWFFFW
+                WWWWWWW"""));
+        assertFalse(sokoban.isLost());
+        // the box reaches an end position but closes the other end position where no box can go
+        sokoban.moveKeeper(Direction.UP);
+        assertEquals(1, sokoban.getBoxesOnGoal());
+        assertTrue(sokoban.isLost());
+        sokoban.undo();
+        assertFalse(sokoban.isLost());
+    }
+}
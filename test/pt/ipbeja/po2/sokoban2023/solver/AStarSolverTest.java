@@ -0,0 +1,63 @@
+package pt.ipbeja.po2.sokoban2023.solver;
+
+import org.junit.jupiter.api.Test;
+import pt.ipbeja.po2.sokoban2023.model.Direction;
+import pt.ipbeja.po2.sokoban2023.model.Level;
+import pt.ipbeja.po2.sokoban2023.model.Position;
+import pt.ipbeja.po2.sokoban2023.model.SokobanGameModel;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AStarSolverTest {
+
+    /**
+     * Plays the solution in a game and checks that it stores all boxes
+     */
+    static void assertSolves(Level level, SolverResult result) {
+        assertTrue(result.solved(), level.levelName());
+        SokobanGameModel sokoban = new SokobanGameModel(level);
+        for (Direction dir : result.moves()) {
+            assertTrue(sokoban.moveKeeper(dir));
+        }
+        assertTrue(sokoban.allBoxesAreStored(), level.levelName());
+    }
+
+    static Level bundledLevel(int number) throws IOException {
+        return Level.load(Path.of("levelFiles", "Level" + number + ".txt"));
+    }
+
+    @Test
+    void testSolvesBundledLevels() throws IOException {
+        for (int i = 1; i <= 5; i++) {
+            Level level = bundledLevel(i);
+            SolverResult result = new AStarSolver().solve(level);
+            assertSolves(level, result);
+        }
+    }
+
+    @Test
+    void testOptimalMoves() {
+        // Level1: the course recorded in Courses/Level1Solution.txt is already optimal
+        SolverResult result = new AStarSolver().solve(new Level());
+        assertEquals(22, result.moves().size());
+        assertTrue(result.nodesExpanded() > 0);
+    }
+
+    @Test
+    void testUnsolvable() {
+        Level level = new Level("Closed", new Position(1, 1), Set.of(new Position(1, 2)), """
+                WWWWW
+                WFFWW
+                WWWEW
+                WWWWW""");
+        SolverResult result = new AStarSolver().solve(level);
+        assertFalse(result.solved());
+        assertTrue(result.moves().isEmpty());
+    }
+}
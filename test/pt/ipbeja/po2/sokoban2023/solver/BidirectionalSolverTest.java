@@ -0,0 +1,59 @@
+package pt.ipbeja.po2.sokoban2023.solver;
+
+import org.junit.jupiter.api.Test;
+import pt.ipbeja.po2.sokoban2023.model.Level;
+import pt.ipbeja.po2.sokoban2023.model.Position;
+
+import java.io.IOException;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class BidirectionalSolverTest {
+
+    @Test
+    void testSolvesBundledLevels() throws IOException {
+        for (int i = 1; i <= 5; i++) {
+            Level level = AStarSolverTest.bundledLevel(i);
+            BidirectionalResult report = new BidirectionalSolver().solveWithReport(level);
+            AStarSolverTest.assertSolves(level, report.result());
+            assertNotNull(report.meetKeeper());
+            assertEquals(report.forwardPushes() + report.backwardPulls(), report.result().pushes(), level.levelName());
+            assertEquals(report.forwardNodes() + report.backwardNodes(), report.result().nodesExpanded(), level.levelName());
+        }
+    }
+
+    @Test
+    void testMoreEndChoicesThanGoalStates() {
+        // C(29, 4) choices of end positions, the first C(25, 4) > 10 000 are all in the closed room on top,
+        // so the backward search runs out of states without ever reaching the boxes below
+        Level level = new Level("Room", new Position(7, 5),
+                Set.of(new Position(8, 1), new Position(8, 2), new Position(8, 3), new Position(8, 4)), """
+                WWWWWWW
+                WEEEEEW
+                WEEEEEW
+                WEEEEEW
+                WEEEEEW
+                WEEEEEW
+                WWWWWWW
+                WFFFFFW
+                WFFFFFW
+                WEEEEFW
+                WWWWWWW""");
+        BidirectionalResult report = new BidirectionalSolver().solveWithReport(level);
+        AStarSolverTest.assertSolves(level, report.result());
+    }
+
+    @Test
+    void testUnsolvable() {
+        Level level = new Level("Closed", new Position(1, 1), Set.of(new Position(1, 2)), """
+                WWWWW
+                WFFWW
+                WWWEW
+                WWWWW""");
+        BidirectionalResult report = new BidirectionalSolver().solveWithReport(level);
+        assertFalse(report.result().solved());
+    }
+}
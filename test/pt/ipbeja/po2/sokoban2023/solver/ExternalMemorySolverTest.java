@@ -0,0 +1,43 @@
+package pt.ipbeja.po2.sokoban2023.solver;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pt.ipbeja.po2.sokoban2023.model.Level;
+import pt.ipbeja.po2.sokoban2023.model.Position;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class ExternalMemorySolverTest {
+
+    @Test
+    void testSameOptimalLengthAsAStar(@TempDir Path dir) throws IOException {
+        for (int i = 1; i <= 5; i++) {
+            Level level = AStarSolverTest.bundledLevel(i);
+            // a tiny heap limit, so every layer is split in many runs
+            SolverResult result = new ExternalMemorySolver(dir, 4096, AStarSolver.DEFAULT_MAX_NODES).solve(level);
+            AStarSolverTest.assertSolves(level, result);
+            assertEquals(new AStarSolver().solve(level).moves().size(), result.moves().size(), level.levelName());
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(0, files.count()); // the layer files are deleted
+        }
+    }
+
+    @Test
+    void testUnsolvable(@TempDir Path dir) {
+        Level level = new Level("Closed", new Position(1, 1), Set.of(new Position(1, 2)), """
+                WWWWW
+                WFFWW
+                WWWEW
+                WWWWW""");
+        SolverResult result = new ExternalMemorySolver(dir, 4096, AStarSolver.DEFAULT_MAX_NODES).solve(level);
+        assertFalse(result.solved());
+    }
+}
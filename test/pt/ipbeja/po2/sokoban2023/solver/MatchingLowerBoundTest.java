@@ -0,0 +1,66 @@
+package pt.ipbeja.po2.sokoban2023.solver;
+
+import org.junit.jupiter.api.Test;
+import pt.ipbeja.po2.sokoban2023.model.BoardModel;
+import pt.ipbeja.po2.sokoban2023.model.Level;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MatchingLowerBoundTest {
+
+    @Test
+    void testIncrementalEqualsFromScratch() throws IOException {
+        List<Level> levels = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            levels.add(AStarSolverTest.bundledLevel(i));
+        }
+        // more end positions than boxes, some columns of the assignment are always free
+        levels.add(Level.fromLines(List.of("Ends", "2 5", "3", "2 2", "3 3", "2 4",
+                "WWWWWWWW",
+                "WEFFFFEW",
+                "WFFFFFFW",
+                "WFFFFFFW",
+                "WEFEFFEW",
+                "WWWWWWWW"), "Ends"));
+        for (Level level : levels) {
+            BoardModel board = new BoardModel(level.boardContent());
+            MoveSpace space = new MoveSpace(board, level);
+            MatchingLowerBound scratch = new MatchingLowerBound(board);
+            MatchingLowerBound incremental = new MatchingLowerBound(board);
+            // breadth-first, so each parent is followed by all its successors
+            List<SearchState> states = new ArrayList<>(List.of(space.initial()));
+            Set<SearchState> seen = new HashSet<>(states);
+            for (int s = 0; s < states.size() && s < 3000; s++) {
+                SearchState parent = states.get(s);
+                space.successors(parent, (next, step) -> {
+                    assertEquals(scratch.estimate(next), incremental.estimate(next, parent), level.levelName());
+                    if (seen.add(next)) states.add(next);
+                });
+            }
+            if (space.initial().nBoxes() == board.nEnds()) {
+                // only the initial state is solved, every other parent was repaired when it was generated
+                assertEquals(1, incremental.solves(), level.levelName());
+            }
+        }
+    }
+
+    @Test
+    void testLowerBound() throws IOException {
+        for (int i = 1; i <= 5; i++) {
+            Level level = AStarSolverTest.bundledLevel(i);
+            BoardModel board = new BoardModel(level.boardContent());
+            SearchState start = SearchState.initial(board, level);
+            final int matching = new MatchingLowerBound(board).estimate(start);
+            SolverResult result = new AStarSolver().solve(level);
+            assertTrue(matching >= new SimpleLowerBound(board).estimate(start), level.levelName());
+            assertTrue(matching <= result.pushes(), level.levelName());
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package pt.ipbeja.po2.sokoban2023.solver;
+
+import org.junit.jupiter.api.Test;
+import pt.ipbeja.po2.sokoban2023.model.Level;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ParallelSolverTest {
+
+    @Test
+    void testSameOptimalLengthAsSequential() throws IOException {
+        for (int i = 1; i <= 5; i++) {
+            Level level = AStarSolverTest.bundledLevel(i);
+            SolverResult sequential = new AStarSolver().solve(level);
+            SolverResult parallel = new ParallelSolver(4, AStarSolver.DEFAULT_MAX_NODES).solve(level);
+            AStarSolverTest.assertSolves(level, parallel);
+            assertEquals(sequential.moves().size(), parallel.moves().size(), level.levelName());
+        }
+    }
+
+    @Test
+    void testResultDoesNotDependOnThreads() throws IOException {
+        Level level = AStarSolverTest.bundledLevel(3);
+        SolverResult oneThread = new ParallelSolver(1, AStarSolver.DEFAULT_MAX_NODES).solve(level);
+        SolverResult fourThreads = new ParallelSolver(4, AStarSolver.DEFAULT_MAX_NODES).solve(level);
+        assertEquals(oneThread.moves(), fourThreads.moves());
+        assertEquals(oneThread.nodesExpanded(), fourThreads.nodesExpanded());
+    }
+}
@@ -0,0 +1,73 @@
+package pt.ipbeja.po2.sokoban2023.solver;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pt.ipbeja.po2.sokoban2023.model.BoardModel;
+import pt.ipbeja.po2.sokoban2023.model.Level;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PatternDatabaseTest {
+
+    @Test
+    void testReloadIsMappedWithSameValues(@TempDir Path dir) throws IOException {
+        Level level = AStarSolverTest.bundledLevel(4);
+        BoardModel board = new BoardModel(level.boardContent());
+        PatternDatabase computed = PatternDatabase.forLevel(board, level, dir);
+        PatternDatabase loaded = PatternDatabase.forLevel(board, level, dir);
+        assertFalse(computed.isMapped());
+        assertTrue(loaded.isMapped());
+        for (int a = 0; a < board.nCells(); a++) {
+            for (int b = 0; b < board.nCells(); b++) {
+                assertEquals(computed.pairPushes(a, b), loaded.pairPushes(a, b));
+            }
+        }
+    }
+
+    @Test
+    void testFileOfAnotherBoardIsRecomputed(@TempDir Path dir) throws IOException {
+        Level level = AStarSolverTest.bundledLevel(2);
+        Level other = AStarSolverTest.bundledLevel(3);
+        BoardModel otherBoard = new BoardModel(other.boardContent());
+        PatternDatabase.compute(otherBoard).save(otherBoard, dir.resolve(level.levelName() + PatternDatabase.EXTENSION));
+
+        BoardModel board = new BoardModel(level.boardContent());
+        assertFalse(PatternDatabase.forLevel(board, level, dir).isMapped());
+        assertTrue(PatternDatabase.forLevel(board, level, dir).isMapped());
+    }
+
+    @Test
+    void testLowerBound(@TempDir Path dir) throws IOException {
+        for (int i = 1; i <= 5; i++) {
+            Level level = AStarSolverTest.bundledLevel(i);
+            BoardModel board = new BoardModel(level.boardContent());
+            PatternDatabase database = PatternDatabase.forLevel(board, level, dir);
+            SearchState start = SearchState.initial(board, level);
+            final int additive = new PatternDatabaseHeuristic(board, database,
+                    PatternDatabaseHeuristic.Combination.ADDITIVE).estimate(start);
+            final int max = new PatternDatabaseHeuristic(board, database,
+                    PatternDatabaseHeuristic.Combination.MAX_WITH_MATCHING).estimate(start);
+            final int fewestPushes = AStarSolver.pushSolver().solve(level).pushes();
+            assertTrue(additive <= fewestPushes, level.levelName());
+            assertTrue(max <= fewestPushes, level.levelName());
+            assertTrue(max >= new MatchingLowerBound(board).estimate(start), level.levelName());
+        }
+    }
+
+    @Test
+    void testSolvesWithFewestMoves(@TempDir Path dir) throws IOException {
+        for (int i = 1; i <= 5; i++) {
+            Level level = AStarSolverTest.bundledLevel(i);
+            PatternDatabase database = PatternDatabase.forLevel(new BoardModel(level.boardContent()), level, dir);
+            SolverResult result = new AStarSolver(board -> new PatternDatabaseHeuristic(board, database,
+                    PatternDatabaseHeuristic.Combination.MAX_WITH_MATCHING), AStarSolver.DEFAULT_MAX_NODES).solve(level);
+            AStarSolverTest.assertSolves(level, result);
+            assertEquals(new AStarSolver().solve(level).moves().size(), result.moves().size(), level.levelName());
+        }
+    }
+}
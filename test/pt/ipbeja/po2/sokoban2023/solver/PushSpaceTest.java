@@ -0,0 +1,80 @@
+package pt.ipbeja.po2.sokoban2023.solver;
+
+import org.junit.jupiter.api.Test;
+import pt.ipbeja.po2.sokoban2023.model.BoardModel;
+import pt.ipbeja.po2.sokoban2023.model.Direction;
+import pt.ipbeja.po2.sokoban2023.model.Level;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PushSpaceTest {
+
+    @Test
+    void testSolvesBundledLevels() throws IOException {
+        for (int i = 1; i <= 5; i++) {
+            Level level = AStarSolverTest.bundledLevel(i);
+            SolverResult pushes = AStarSolver.pushSolver().solve(level);
+            SolverResult moves = new AStarSolver().solve(level);
+            // the expanded moves replay in the game like any course
+            AStarSolverTest.assertSolves(level, pushes);
+            assertTrue(pushes.pushes() <= moves.pushes(), level.levelName());
+            assertTrue(pushes.moves().size() >= moves.moves().size(), level.levelName());
+        }
+    }
+
+    @Test
+    void testFewerNodes() throws IOException {
+        Level level = AStarSolverTest.bundledLevel(4);
+        SolverResult pushes = AStarSolver.pushSolver().solve(level);
+        SolverResult moves = new AStarSolver().solve(level);
+        assertTrue(pushes.nodesExpanded() * 10 < moves.nodesExpanded());
+    }
+
+    @Test
+    void testMacrosSolveBundledLevels() throws IOException {
+        long saved = 0;
+        for (int i = 1; i <= 5; i++) {
+            Level level = AStarSolverTest.bundledLevel(i);
+            BoardModel board = new BoardModel(level.boardContent());
+            PushSpace space = new PushSpace(board, level, true);
+            SolverResult result = AStarSolver.macroSolver().solve(space, new MatchingLowerBound(board));
+            AStarSolverTest.assertSolves(level, result);
+            saved += space.savedStates();
+        }
+        assertTrue(saved > 0);
+    }
+
+    @Test
+    void testGoalRoomPacking() throws IOException {
+        Level level = AStarSolverTest.bundledLevel(2);
+        BoardModel board = new BoardModel(level.boardContent());
+        MacroMoves macros = new MacroMoves(board);
+        // the end positions are in column 7, entered from (3, 6); the deepest one is filled first
+        assertEquals(board.cell(3, 6), macros.entrance());
+        assertArrayEquals(new int[]{board.cell(5, 7), board.cell(4, 7), board.cell(3, 7)}, macros.packingOrder());
+
+        // a box pushed onto the entrance goes on to the deepest end position
+        SearchState state = SearchState.of(board, board.cell(3, 4), new int[]{board.cell(3, 5)});
+        MacroMoves.Expansion macro = macros.expand(state, board.cell(3, 5), Direction.RIGHT);
+        assertTrue(macro.state().hasBox(board.cell(5, 7)));
+        assertEquals(4, macro.pushes().length);
+    }
+
+    @Test
+    void testTunnelMacro() {
+        BoardModel board = new BoardModel("""
+                WWWWWWW
+                FFFFFFE
+                WWWWWWW""");
+        MacroMoves macros = new MacroMoves(board);
+        SearchState state = SearchState.of(board, board.cell(1, 0), new int[]{board.cell(1, 1)});
+        MacroMoves.Expansion macro = macros.expand(state, board.cell(1, 1), Direction.RIGHT);
+        // the box goes through the tunnel and stops on the end position
+        assertTrue(macro.state().hasBox(board.cell(1, 6)));
+        assertEquals(5, macro.pushes().length);
+    }
+}
@@ -0,0 +1,82 @@
+package pt.ipbeja.po2.sokoban2023.solver;
+
+import org.junit.jupiter.api.Test;
+import pt.ipbeja.po2.sokoban2023.model.BoardModel;
+import pt.ipbeja.po2.sokoban2023.model.Level;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TranspositionTableTest {
+
+    /**
+     * Every state reachable from the initial state of level, up to max states
+     */
+    private static List<SearchState> reachable(Level level, int max) {
+        MoveSpace space = new MoveSpace(new BoardModel(level.boardContent()), level);
+        List<SearchState> states = new ArrayList<>(List.of(space.initial()));
+        Set<SearchState> seen = new HashSet<>(states);
+        for (int i = 0; i < states.size() && states.size() < max; i++) {
+            space.successors(states.get(i), (next, step) -> {
+                if (seen.add(next)) states.add(next);
+            });
+        }
+        return states;
+    }
+
+    @Test
+    void testPutAndGet() throws IOException {
+        Level level = AStarSolverTest.bundledLevel(2);
+        BoardModel board = new BoardModel(level.boardContent());
+        List<SearchState> states = reachable(level, 20_000);
+        TranspositionTable table = new TranspositionTable(board, 64L << 20, EvictionPolicy.KEEP_EXISTING);
+        for (int i = 0; i < states.size(); i++) {
+            assertEquals(TranspositionTable.MISSING, table.get(states.get(i)));
+            assertTrue(table.put(states.get(i), i));
+        }
+        assertEquals(states.size(), table.size());
+        for (int i = 0; i < states.size(); i++) {
+            assertEquals(i, table.get(states.get(i)));
+        }
+        table.put(states.get(0), 7);
+        assertEquals(7, table.get(states.get(0)));
+        assertEquals(states.size(), table.size());
+    }
+
+    @Test
+    void testByteBudget() throws IOException {
+        Level level = AStarSolverTest.bundledLevel(2);
+        BoardModel board = new BoardModel(level.boardContent());
+        List<SearchState> states = reachable(level, 20_000);
+        final long budget = 32 * 1024;
+        for (EvictionPolicy policy : EvictionPolicy.values()) {
+            TranspositionTable table = new TranspositionTable(board, budget, policy);
+            for (int i = 0; i < states.size(); i++) {
+                table.put(states.get(i), i % 100);
+            }
+            assertTrue(table.bytes() <= budget, policy.name());
+            assertTrue(table.size() < states.size(), policy.name());
+            if (policy == EvictionPolicy.KEEP_EXISTING) {
+                assertEquals(0, table.evictions());
+                assertTrue(table.rejections() > 0);
+                assertEquals(0, table.get(states.get(0))); // the first state is never replaced
+            } else {
+                assertTrue(table.evictions() > 0, policy.name());
+            }
+        }
+    }
+
+    @Test
+    void testSolverWithSmallTable() {
+        // evicted states may be expanded again, but the solution stays optimal
+        SolverResult result = new AStarSolver(SimpleLowerBound::new, AStarSolver.DEFAULT_MAX_NODES,
+                8 * 1024, EvictionPolicy.REPLACE_DEEPEST).solve(new Level());
+        assertEquals(22, result.moves().size());
+    }
+}